@@ -1,11 +1,13 @@
-import java.io.IOException;
+import api.ServidorApi;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import model.*;
 import repositories.*;
 import services.*;
+import utils.EscritorPersistencia;
 import views.*;
 
 public class Main {
@@ -16,11 +18,18 @@ public class Main {
 
         ClienteRepository clienteRepo = new ClienteRepository(clientes);
         VeiculoRepository veiculoRepo = new VeiculoRepository(veiculos);
-        AluguelRepository aluguelRepo = new AluguelRepository(alugueis);
+        AluguelRepository aluguelRepo = new AluguelRepository(alugueis, clienteRepo, veiculoRepo);
+
+        // Arquivos regravados em segundo plano: no máximo a cada 2s ou a cada 50 alterações
+        EscritorPersistencia persistencia = new EscritorPersistencia(2000, 50);
+        clienteRepo.usarPersistencia(persistencia);
+        veiculoRepo.usarPersistencia(persistencia);
+        aluguelRepo.usarPersistencia(persistencia);
 
         clienteRepo.carregarDeArquivo();
         veiculoRepo.carregarDeArquivo();
         aluguelRepo.carregarDeArquivo();
+        persistencia.iniciar();
 
         ClienteService clienteService = new ClienteService(clienteRepo);
         VeiculoService veiculoService = new VeiculoService(veiculoRepo);
@@ -105,19 +114,19 @@ public class Main {
                 
                 Aluguel aluguel7 = aluguelService.alugar("98765432100", "EFG-5555",
                     agora.minusDays(8), "Filial Norte");
-                aluguelService.devolver(aluguel7.getId(), agora.minusDays(6), "Filial Centro");
+                aluguel7 = aluguelService.devolver(aluguel7.getId(), agora.minusDays(6), "Filial Centro");
                 System.out.println("Aluguel finalizado: " + aluguel7.getId() + 
                     " (João Santos - Jetta MEDIO - R$ " + aluguel7.getValorTotal() + ")");
                 
                 Aluguel aluguel8 = aluguelService.alugar("11122233344", "STU-1111",
                     agora.minusDays(10), "Filial Sul");
-                aluguelService.devolver(aluguel8.getId(), agora.minusDays(7), "Filial Norte");
+                aluguel8 = aluguelService.devolver(aluguel8.getId(), agora.minusDays(7), "Filial Norte");
                 System.out.println("Aluguel finalizado: " + aluguel8.getId() + 
                     " (Maria Oliveira - Palio PEQUENO - R$ " + aluguel8.getValorTotal() + ")");
                 
                 Aluguel aluguel9 = aluguelService.alugar("98765432000111", "QRS-9999",
                     agora.minusDays(12), "Filial Leste");
-                aluguelService.devolver(aluguel9.getId(), agora.minusDays(9), "Filial Sul");
+                aluguel9 = aluguelService.devolver(aluguel9.getId(), agora.minusDays(9), "Filial Sul");
                 System.out.println("Aluguel finalizado: " + aluguel9.getId() + 
                     " (Empresa ABC - Ranger SUV - R$ " + aluguel9.getValorTotal() + ")");
                 
@@ -152,8 +161,48 @@ public class Main {
             System.out.println("Erro ao carregar dados iniciais: " + e.getMessage());
         }
 
-        MenuPrincipal menuPrincipal = new MenuPrincipal(clienteService, veiculoService, aluguelService);
-        menuPrincipal.start();
+        // API HTTP opcional: --api (porta 8080) ou --api=PORTA; com --sem-menu roda sem o console.
+        // Só atende a própria máquina, a menos que --api-publica peça todas as interfaces de rede
+        ServidorApi servidorApi = null;
+        Integer portaApi = portaApi(args);
+        if (portaApi != null) {
+            boolean apiPublica = List.of(args).contains("--api-publica");
+            servidorApi = new ServidorApi(portaApi, apiPublica, clienteService, veiculoService, aluguelService, relatorioService);
+            servidorApi.iniciar();
+        }
+
+        if (servidorApi != null && List.of(args).contains("--sem-menu")) {
+            // encerrado com Ctrl+C; o shutdown hook grava as alterações pendentes
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            MenuPrincipal menuPrincipal = new MenuPrincipal(clienteService, veiculoService, aluguelService);
+            menuPrincipal.start();
+        }
+
+        if (servidorApi != null) {
+            servidorApi.parar();
+        }
+        persistencia.encerrar();
+    }
+
+    private static Integer portaApi(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--api")) {
+                return 8080;
+            }
+            if (arg.startsWith("--api=")) {
+                try {
+                    return Integer.parseInt(arg.substring("--api=".length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Porta inválida em " + arg);
+                }
+            }
+        }
+        return null;
     }
 
     private static void demonstrarNovasFuncionalidades(
@@ -189,30 +238,27 @@ public class Main {
 
         System.out.println("\n🚗 4. FUNCTION - TOP 3 Veículos Mais Alugados:");
         System.out.println("-".repeat(80));
-        aluguelService.obterVeiculosMaisAlugados().stream()
-                .limit(3)
-                .forEach(entry ->
-                        System.out.printf("  %s: %d aluguéis%n", entry.getKey(), entry.getValue())
-                );
+        aluguelService.obterVeiculosMaisAlugados(3).forEach(posicao ->
+                System.out.printf("  %s - %s: %d aluguéis%n",
+                        posicao.getItem().getPlaca(), posicao.getItem().getNome(), posicao.getQuantidade())
+        );
 
         System.out.println("\n5. STREAMS + REDUCE - Faturamento Total:");
         System.out.println("-".repeat(80));
-        System.out.printf("  Faturamento total: R$ %.2f%n", aluguelService.calcularFaturamentoTotal());
+        System.out.printf("  Faturamento total: R$ %.2f%n", aluguelService.calcularFaturamentoTotal().paraBigDecimal());
 
         System.out.println("\n📝 6. RELATÓRIOS (Files + Streams):");
         System.out.println("-".repeat(80));
         try {
-            relatorioService.gerarRelatorioVeiculosMaisAlugados();
-            relatorioService.gerarRelatorioClientesQueMaisAlugaram();
-            relatorioService.gerarRelatorioCompletodeAlugueis();
-
+            // Os quatro relatórios em paralelo, a partir de uma única leitura dos dados
             LocalDateTime hoje = LocalDateTime.now();
             LocalDateTime trintaDiasAtras = hoje.minusDays(30);
-            relatorioService.gerarRelatorioFaturamentoPorPeriodo(trintaDiasAtras, hoje);
+            TarefaRelatorios tarefa = relatorioService.gerarTodosRelatorios(trintaDiasAtras, hoje);
+            tarefa.getConclusao().join().forEach(arquivo -> System.out.println("  Relatório gerado: " + arquivo));
 
             System.out.println("  Todos os relatórios foram gerados no diretório 'relatorios/'");
-        } catch (IOException e) {
-            System.err.println("  Erro ao gerar relatórios: " + e.getMessage());
+        } catch (CompletionException e) {
+            System.err.println("  Erro ao gerar relatórios: " + e.getCause().getMessage());
         }
 
         System.out.println("\n" + "=".repeat(80));
@@ -18,7 +18,8 @@ javac -d bin -sourcepath . \
     src/services/*.java \
     src/utils/*.java \
     src/views/*.java \
-    src/functional/*.java
+    src/functional/*.java \
+    src/api/*.java
 
 # Verificar se compilou com sucesso
 if [ $? -eq 0 ]; then
@@ -0,0 +1,223 @@
+package api;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import model.Dinheiro;
+
+/**
+ * JSON mínimo para a API, sem dependências externas.
+ *
+ * A escrita aceita null, String, Number, Dinheiro (número com duas casas), Boolean, Enum,
+ * Map (chaves String) e Collection;
+ * qualquer outro valor é escrito com toString() entre aspas.
+ * A leitura aceita apenas objetos planos ({"campo": valor}), que é o que as rotas recebem;
+ * os valores voltam como texto (números e booleanos na forma em que vieram).
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    static String escrever(Object valor) {
+        StringBuilder sb = new StringBuilder(256);
+        escrever(sb, valor);
+        return sb.toString();
+    }
+
+    private static void escrever(StringBuilder sb, Object valor) {
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof BigDecimal decimal) {
+            sb.append(decimal.toPlainString());
+        } else if (valor instanceof Dinheiro dinheiro) {
+            sb.append(dinheiro);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else if (valor instanceof Enum<?> constante) {
+            escreverTexto(sb, constante.name());
+        } else if (valor instanceof Map<?, ?> mapa) {
+            sb.append('{');
+            boolean primeiro = true;
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escreverTexto(sb, String.valueOf(entrada.getKey()));
+                sb.append(':');
+                escrever(sb, entrada.getValue());
+            }
+            sb.append('}');
+        } else if (valor instanceof Collection<?> itens) {
+            sb.append('[');
+            boolean primeiro = true;
+            for (Object item : itens) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escrever(sb, item);
+            }
+            sb.append(']');
+        } else {
+            escreverTexto(sb, valor.toString());
+        }
+    }
+
+    private static void escreverTexto(StringBuilder sb, String texto) {
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Lê um objeto plano. Corpo vazio equivale a {}.
+     *
+     * @throws IllegalArgumentException se o texto não for um objeto JSON plano válido
+     */
+    static Map<String, String> lerObjeto(String texto) {
+        Map<String, String> campos = new LinkedHashMap<>();
+        if (texto == null || texto.isBlank()) {
+            return campos;
+        }
+        Leitor leitor = new Leitor(texto);
+        leitor.esperar('{');
+        if (!leitor.consumirSe('}')) {
+            do {
+                String chave = leitor.lerTexto();
+                leitor.esperar(':');
+                campos.put(chave, leitor.lerValor());
+            } while (leitor.consumirSe(','));
+            leitor.esperar('}');
+        }
+        leitor.esperarFim();
+        return campos;
+    }
+
+    private static class Leitor {
+        private final String texto;
+        private int posicao;
+
+        Leitor(String texto) {
+            this.texto = texto;
+        }
+
+        void esperar(char c) {
+            pularEspacos();
+            if (posicao >= texto.length() || texto.charAt(posicao) != c) {
+                throw erro("esperado '" + c + "'");
+            }
+            posicao++;
+        }
+
+        boolean consumirSe(char c) {
+            pularEspacos();
+            if (posicao < texto.length() && texto.charAt(posicao) == c) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        void esperarFim() {
+            pularEspacos();
+            if (posicao != texto.length()) {
+                throw erro("conteúdo após o fim do objeto");
+            }
+        }
+
+        String lerValor() {
+            pularEspacos();
+            if (posicao >= texto.length()) {
+                throw erro("valor ausente");
+            }
+            char c = texto.charAt(posicao);
+            if (c == '"') {
+                return lerTexto();
+            }
+            if (c == '{' || c == '[') {
+                throw erro("apenas objetos planos são aceitos");
+            }
+            int inicio = posicao;
+            while (posicao < texto.length() && ",} \t\r\n".indexOf(texto.charAt(posicao)) < 0) {
+                posicao++;
+            }
+            String literal = texto.substring(inicio, posicao);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw erro("valor inválido '" + literal + "'");
+        }
+
+        String lerTexto() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (posicao >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(posicao++);
+                switch (escape) {
+                    case '"', '\\', '/' -> sb.append(escape);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (posicao + 4 > texto.length()) {
+                            throw erro("escape \\u incompleto");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(texto.substring(posicao, posicao + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw erro("escape \\u inválido");
+                        }
+                        posicao += 4;
+                    }
+                    default -> throw erro("escape inválido \\" + escape);
+                }
+            }
+            throw erro("texto sem aspas de fechamento");
+        }
+
+        private void pularEspacos() {
+            while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+                posicao++;
+            }
+        }
+
+        private IllegalArgumentException erro(String motivo) {
+            return new IllegalArgumentException("JSON inválido na posição " + posicao + ": " + motivo);
+        }
+    }
+}
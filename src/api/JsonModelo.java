@@ -0,0 +1,104 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import model.Aluguel;
+import model.Cliente;
+import model.PessoaFisica;
+import model.Veiculo;
+import services.ResultadoAluguel;
+import utils.Pagina;
+import utils.Ranking;
+
+/**
+ * Representação JSON das entidades do modelo (mapas na ordem dos campos).
+ * Aluguéis levam apenas documento/placa e nome, como na persistência.
+ */
+final class JsonModelo {
+
+    private JsonModelo() {
+    }
+
+    static Map<String, Object> cliente(Cliente cliente) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("documento", cliente.getDocumento());
+        json.put("nome", cliente.getNome());
+        json.put("tipo", cliente instanceof PessoaFisica ? "PF" : "PJ");
+        return json;
+    }
+
+    static Map<String, Object> veiculo(Veiculo veiculo) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("placa", veiculo.getPlaca());
+        json.put("nome", veiculo.getNome());
+        json.put("tipo", veiculo.getTipo());
+        json.put("disponivel", veiculo.isDisponivel());
+        return json;
+    }
+
+    static Map<String, Object> aluguel(Aluguel aluguel) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", aluguel.getId());
+        json.put("documento", aluguel.getCliente().getDocumento());
+        json.put("cliente", aluguel.getCliente().getNome());
+        json.put("placa", aluguel.getVeiculo().getPlaca());
+        json.put("veiculo", aluguel.getVeiculo().getNome());
+        json.put("retirada", aluguel.getDataHoraRetirada());
+        json.put("localRetirada", aluguel.getLocalRetirada());
+        json.put("devolucao", aluguel.getDataHoraDevolucao());
+        json.put("localDevolucao", aluguel.getLocalDevolucao());
+        json.put("valorTotal", aluguel.getValorTotal());
+        json.put("ativo", aluguel.isAtivo());
+        return json;
+    }
+
+    static <T> List<Map<String, Object>> lista(List<T> itens, Function<T, Map<String, Object>> conversor) {
+        return itens.stream().map(conversor).collect(Collectors.toList());
+    }
+
+    static <T> Map<String, Object> pagina(Pagina<T> pagina, Function<T, Map<String, Object>> conversor) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("itens", lista(pagina.getItens(), conversor));
+        json.put("proximoCursor", pagina.getProximoCursor());
+        return json;
+    }
+
+    static <T> List<Map<String, Object>> ranking(List<Ranking.Posicao<T>> ranking, String nomeItem,
+                                                 Function<T, Map<String, Object>> conversor) {
+        List<Map<String, Object>> linhas = new ArrayList<>(ranking.size());
+        for (Ranking.Posicao<T> posicao : ranking) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("posicao", posicao.getPosicao());
+            json.put("quantidade", posicao.getQuantidade());
+            json.put(nomeItem, conversor.apply(posicao.getItem()));
+            linhas.add(json);
+        }
+        return linhas;
+    }
+
+    /**
+     * Resultado de uma operação em lote: se foi aceito e o resultado de cada item, na ordem do pedido.
+     */
+    static Map<String, Object> lote(List<String> itens, List<ResultadoAluguel> resultados) {
+        List<Map<String, Object>> detalhes = new ArrayList<>(resultados.size());
+        for (int i = 0; i < resultados.size(); i++) {
+            ResultadoAluguel resultado = resultados.get(i);
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("item", itens.get(i));
+            json.put("status", resultado.getStatus().name());
+            json.put("mensagem", resultado.getMensagem());
+            if (resultado.isSucesso()) {
+                json.put("aluguel", aluguel(resultado.getAluguel()));
+            }
+            detalhes.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("aceito", resultados.stream().allMatch(ResultadoAluguel::isSucesso));
+        json.put("itens", detalhes);
+        return json;
+    }
+}
@@ -0,0 +1,140 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dados de uma requisição já separados: método, segmentos do caminho depois da rota,
+ * parâmetros da query e corpo JSON (lido sob demanda).
+ */
+final class Requisicao {
+    private static final int TAMANHO_MAXIMO_CORPO = 64 * 1024;
+
+    private final HttpExchange troca;
+    private final String metodo;
+    private final List<String> caminho = new ArrayList<>();
+    private final Map<String, String> parametros = new HashMap<>();
+    private Map<String, String> corpo;
+
+    Requisicao(HttpExchange troca) {
+        this.troca = troca;
+        this.metodo = troca.getRequestMethod();
+
+        String rota = troca.getHttpContext().getPath();
+        String resto = troca.getRequestURI().getRawPath().substring(rota.length());
+        for (String segmento : resto.split("/")) {
+            if (!segmento.isEmpty()) {
+                caminho.add(decodificar(segmento));
+            }
+        }
+
+        String query = troca.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String par : query.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual > 0) {
+                    parametros.put(decodificar(par.substring(0, igual)), decodificar(par.substring(igual + 1)));
+                } else if (!par.isEmpty()) {
+                    parametros.put(decodificar(par), "");
+                }
+            }
+        }
+    }
+
+    String getMetodo() {
+        return metodo;
+    }
+
+    List<String> getCaminho() {
+        return caminho;
+    }
+
+    String parametro(String nome) {
+        return parametros.get(nome);
+    }
+
+    int parametroInt(String nome, int padrao, int maximo) {
+        String valor = parametros.get(nome);
+        if (valor == null || valor.isBlank()) {
+            return padrao;
+        }
+        try {
+            int numero = Integer.parseInt(valor);
+            if (numero <= 0 || numero > maximo) {
+                throw new IllegalArgumentException("Parâmetro '" + nome + "' deve estar entre 1 e " + maximo);
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parâmetro '" + nome + "' deve ser numérico");
+        }
+    }
+
+    LocalDateTime parametroDataHora(String nome, LocalDateTime padrao) {
+        return dataHora(nome, parametros.get(nome), padrao);
+    }
+
+    Map<String, String> corpo() throws IOException {
+        if (corpo == null) {
+            try (InputStream in = troca.getRequestBody()) {
+                byte[] bytes = in.readNBytes(TAMANHO_MAXIMO_CORPO + 1);
+                if (bytes.length > TAMANHO_MAXIMO_CORPO) {
+                    throw new IllegalArgumentException("Corpo da requisição excede " + TAMANHO_MAXIMO_CORPO + " bytes");
+                }
+                corpo = Json.lerObjeto(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return corpo;
+    }
+
+    String campoObrigatorio(String nome) throws IOException {
+        String valor = corpo().get(nome);
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException("Campo '" + nome + "' é obrigatório");
+        }
+        return valor;
+    }
+
+    /**
+     * Campo obrigatório com vários valores separados por vírgula (o leitor só aceita objetos planos).
+     */
+    List<String> campoLista(String nome) throws IOException {
+        List<String> valores = new ArrayList<>();
+        for (String valor : campoObrigatorio(nome).split(",")) {
+            if (!valor.isBlank()) {
+                valores.add(valor.strip());
+            }
+        }
+        if (valores.isEmpty()) {
+            throw new IllegalArgumentException("Campo '" + nome + "' é obrigatório");
+        }
+        return valores;
+    }
+
+    LocalDateTime campoDataHora(String nome, LocalDateTime padrao) throws IOException {
+        return dataHora(nome, corpo().get(nome), padrao);
+    }
+
+    private static LocalDateTime dataHora(String nome, String valor, LocalDateTime padrao) {
+        if (valor == null || valor.isBlank()) {
+            return padrao;
+        }
+        try {
+            return LocalDateTime.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data inválida em '" + nome + "': use o formato 2025-01-31T10:00");
+        }
+    }
+
+    private static String decodificar(String texto) {
+        return URLDecoder.decode(texto, StandardCharsets.UTF_8);
+    }
+}
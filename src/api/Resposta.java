@@ -0,0 +1,51 @@
+package api;
+
+import java.util.Map;
+
+/**
+ * Status HTTP e corpo (convertido para JSON no envio).
+ */
+final class Resposta {
+    private final int status;
+    private final Object corpo;
+
+    private Resposta(int status, Object corpo) {
+        this.status = status;
+        this.corpo = corpo;
+    }
+
+    static Resposta ok(Object corpo) {
+        return new Resposta(200, corpo);
+    }
+
+    static Resposta criado(Object corpo) {
+        return new Resposta(201, corpo);
+    }
+
+    /**
+     * 409 com corpo detalhado (ex.: motivo de cada item de um lote recusado).
+     */
+    static Resposta conflito(Object corpo) {
+        return new Resposta(409, corpo);
+    }
+
+    static Resposta erro(int status, String mensagem) {
+        return new Resposta(status, Map.of("erro", mensagem == null ? "Erro" : mensagem));
+    }
+
+    static Resposta naoEncontrado() {
+        return erro(404, "Recurso não encontrado");
+    }
+
+    static Resposta metodoNaoPermitido() {
+        return erro(405, "Método não permitido");
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    Object getCorpo() {
+        return corpo;
+    }
+}
@@ -0,0 +1,39 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+/**
+ * Base das rotas da API: converte exceções dos serviços em status HTTP
+ * (IllegalArgumentException -> 400, NoSuchElementException -> 404) e envia o corpo em JSON.
+ */
+abstract class Rota implements HttpHandler {
+
+    @Override
+    public final void handle(HttpExchange troca) throws IOException {
+        Resposta resposta;
+        try {
+            resposta = tratar(new Requisicao(troca));
+        } catch (NoSuchElementException e) {
+            resposta = Resposta.erro(404, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            resposta = Resposta.erro(400, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            resposta = Resposta.erro(500, "Erro interno: " + e.getMessage());
+        }
+
+        byte[] corpo = Json.escrever(resposta.getCorpo()).getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(resposta.getStatus(), corpo.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+
+    protected abstract Resposta tratar(Requisicao requisicao) throws IOException;
+}
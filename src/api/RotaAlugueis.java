@@ -0,0 +1,144 @@
+package api;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import model.Aluguel;
+import services.AluguelService;
+import services.ResultadoAluguel;
+
+/**
+ * GET  /alugueis?cursor=&tamanho=       página de aluguéis, retiradas mais recentes primeiro
+ * GET  /alugueis?ativos=true            aluguéis ativos
+ * GET  /alugueis?cliente={documento}    aluguéis do cliente
+ * GET  /alugueis?placa={placa}          aluguéis do veículo
+ * GET  /alugueis?prefixo={inicio do ID}
+ * GET  /alugueis/{id}
+ * POST /alugueis                        {"documento", "placa", "localRetirada", "retirada"?}
+ * POST /alugueis/{id}/devolucao         {"localDevolucao", "devolucao"?}
+ * POST /alugueis/lote                   {"documento", "placas": "ABC-1234,DEF-5678", "localRetirada", "retirada"?}
+ * POST /alugueis/lote/devolucao         {"ids": "id1,id2", "localDevolucao", "devolucao"?}
+ *
+ * Datas no formato ISO (2025-01-31T10:00); sem data, vale o momento da requisição.
+ * Veículo já alugado responde 409. Lotes são tudo ou nada: recusado, responde 409
+ * com o motivo de cada item.
+ */
+class RotaAlugueis extends Rota {
+    private final AluguelService aluguelService;
+
+    RotaAlugueis(AluguelService aluguelService) {
+        this.aluguelService = aluguelService;
+    }
+
+    @Override
+    protected Resposta tratar(Requisicao requisicao) throws IOException {
+        List<String> caminho = requisicao.getCaminho();
+        String metodo = requisicao.getMetodo();
+        if (caminho.isEmpty()) {
+            return switch (metodo) {
+                case "GET" -> listar(requisicao);
+                case "POST" -> alugar(requisicao);
+                default -> Resposta.metodoNaoPermitido();
+            };
+        }
+        if (caminho.get(0).equals("lote")) {
+            if (!metodo.equals("POST")) {
+                return Resposta.metodoNaoPermitido();
+            }
+            if (caminho.size() == 1) {
+                return alugarEmLote(requisicao);
+            }
+            if (caminho.size() == 2 && caminho.get(1).equals("devolucao")) {
+                return devolverEmLote(requisicao);
+            }
+            return Resposta.naoEncontrado();
+        }
+        if (caminho.size() == 1) {
+            if (!metodo.equals("GET")) {
+                return Resposta.metodoNaoPermitido();
+            }
+            return Resposta.ok(JsonModelo.aluguel(buscar(caminho.get(0))));
+        }
+        if (caminho.size() == 2 && caminho.get(1).equals("devolucao")) {
+            if (!metodo.equals("POST")) {
+                return Resposta.metodoNaoPermitido();
+            }
+            return devolver(caminho.get(0), requisicao);
+        }
+        return Resposta.naoEncontrado();
+    }
+
+    private Aluguel buscar(String id) {
+        return aluguelService.buscarPorId(id)
+                .orElseThrow(() -> new NoSuchElementException("Aluguel não encontrado"));
+    }
+
+    private Resposta listar(Requisicao requisicao) {
+        if ("true".equals(requisicao.parametro("ativos"))) {
+            return Resposta.ok(JsonModelo.lista(aluguelService.listarAtivos(), JsonModelo::aluguel));
+        }
+        if (requisicao.parametro("cliente") != null) {
+            return Resposta.ok(JsonModelo.lista(
+                    aluguelService.listarPorCliente(requisicao.parametro("cliente")), JsonModelo::aluguel));
+        }
+        if (requisicao.parametro("placa") != null) {
+            return Resposta.ok(JsonModelo.lista(
+                    aluguelService.listarPorVeiculo(requisicao.parametro("placa")), JsonModelo::aluguel));
+        }
+        if (requisicao.parametro("prefixo") != null) {
+            return Resposta.ok(JsonModelo.lista(
+                    aluguelService.buscarTodosPorPrefixo(requisicao.parametro("prefixo")), JsonModelo::aluguel));
+        }
+        int tamanho = requisicao.parametroInt("tamanho", 20, 200);
+        return Resposta.ok(JsonModelo.pagina(
+                aluguelService.listarAPartirDe(requisicao.parametro("cursor"), tamanho), JsonModelo::aluguel));
+    }
+
+    private Resposta alugar(Requisicao requisicao) throws IOException {
+        ResultadoAluguel resultado = aluguelService.tentarAlugar(
+                requisicao.campoObrigatorio("documento"),
+                requisicao.campoObrigatorio("placa"),
+                requisicao.campoDataHora("retirada", LocalDateTime.now()),
+                requisicao.campoObrigatorio("localRetirada"));
+
+        return switch (resultado.getStatus()) {
+            case SUCESSO -> Resposta.criado(JsonModelo.aluguel(resultado.getAluguel()));
+            case VEICULO_INDISPONIVEL -> Resposta.erro(409, resultado.getMensagem());
+            default -> Resposta.erro(404, resultado.getMensagem());
+        };
+    }
+
+    private Resposta devolver(String id, Requisicao requisicao) throws IOException {
+        Aluguel aluguel = buscar(id);
+        Aluguel devolvido = aluguelService.devolver(aluguel.getId(),
+                requisicao.campoDataHora("devolucao", LocalDateTime.now()),
+                requisicao.campoObrigatorio("localDevolucao"));
+        return Resposta.ok(JsonModelo.aluguel(devolvido));
+    }
+
+    private Resposta alugarEmLote(Requisicao requisicao) throws IOException {
+        List<String> placas = requisicao.campoLista("placas");
+        List<ResultadoAluguel> resultados = aluguelService.alugarEmLote(
+                requisicao.campoObrigatorio("documento"),
+                placas,
+                requisicao.campoDataHora("retirada", LocalDateTime.now()),
+                requisicao.campoObrigatorio("localRetirada"));
+        return respostaLote(placas, resultados);
+    }
+
+    private Resposta devolverEmLote(Requisicao requisicao) throws IOException {
+        List<String> ids = requisicao.campoLista("ids");
+        List<ResultadoAluguel> resultados = aluguelService.devolverEmLote(
+                ids,
+                requisicao.campoDataHora("devolucao", LocalDateTime.now()),
+                requisicao.campoObrigatorio("localDevolucao"));
+        return respostaLote(ids, resultados);
+    }
+
+    private static Resposta respostaLote(List<String> itens, List<ResultadoAluguel> resultados) {
+        Map<String, Object> json = JsonModelo.lote(itens, resultados);
+        return Boolean.TRUE.equals(json.get("aceito")) ? Resposta.ok(json) : Resposta.conflito(json);
+    }
+}
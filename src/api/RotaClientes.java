@@ -0,0 +1,68 @@
+package api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import model.Cliente;
+import model.PessoaFisica;
+import model.PessoaJuridica;
+import services.ClienteService;
+
+/**
+ * GET  /clientes?cursor=&tamanho=   página de clientes em ordem de nome
+ * GET  /clientes?nome=trecho        busca por trecho do nome
+ * GET  /clientes/{documento}
+ * POST /clientes                    {"tipo": "PF"|"PJ", "documento": "...", "nome": "..."}
+ */
+class RotaClientes extends Rota {
+    private final ClienteService clienteService;
+
+    RotaClientes(ClienteService clienteService) {
+        this.clienteService = clienteService;
+    }
+
+    @Override
+    protected Resposta tratar(Requisicao requisicao) throws IOException {
+        List<String> caminho = requisicao.getCaminho();
+        if (caminho.isEmpty()) {
+            return switch (requisicao.getMetodo()) {
+                case "GET" -> listar(requisicao);
+                case "POST" -> cadastrar(requisicao);
+                default -> Resposta.metodoNaoPermitido();
+            };
+        }
+        if (caminho.size() == 1) {
+            if (!requisicao.getMetodo().equals("GET")) {
+                return Resposta.metodoNaoPermitido();
+            }
+            Cliente cliente = clienteService.buscarPorDocumento(caminho.get(0))
+                    .orElseThrow(() -> new NoSuchElementException("Cliente não encontrado"));
+            return Resposta.ok(JsonModelo.cliente(cliente));
+        }
+        return Resposta.naoEncontrado();
+    }
+
+    private Resposta listar(Requisicao requisicao) {
+        String nome = requisicao.parametro("nome");
+        if (nome != null) {
+            return Resposta.ok(JsonModelo.lista(clienteService.buscarPorNome(nome), JsonModelo::cliente));
+        }
+        int tamanho = requisicao.parametroInt("tamanho", 20, 200);
+        return Resposta.ok(JsonModelo.pagina(
+                clienteService.listarAPartirDe(requisicao.parametro("cursor"), tamanho), JsonModelo::cliente));
+    }
+
+    private Resposta cadastrar(Requisicao requisicao) throws IOException {
+        String tipo = requisicao.campoObrigatorio("tipo");
+        String documento = requisicao.campoObrigatorio("documento");
+        String nome = requisicao.campoObrigatorio("nome");
+
+        Cliente cliente = switch (tipo.toUpperCase()) {
+            case "PF" -> new PessoaFisica(documento, nome);
+            case "PJ" -> new PessoaJuridica(documento, nome);
+            default -> throw new IllegalArgumentException("Tipo de cliente deve ser PF ou PJ");
+        };
+        clienteService.cadastrarCliente(cliente);
+        return Resposta.criado(JsonModelo.cliente(cliente));
+    }
+}
@@ -0,0 +1,124 @@
+package api;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import services.AluguelService;
+import services.RelatorioService;
+import utils.FaturamentoAgregado;
+
+/**
+ * Consultas (JSON):
+ * GET  /relatorios/faturamento?inicio=&fim=       total, por tipo de veículo e de cliente (e por dia, com início)
+ * GET  /relatorios/veiculos-mais-alugados?limite=      top 10 (padrão), com posição
+ * GET  /relatorios/clientes-que-mais-alugaram?limite=
+ *
+ * Geração dos arquivos em relatorios/ (RelatorioService):
+ * POST /relatorios/faturamento?inicio=&fim=       padrão: últimos 30 dias
+ * POST /relatorios/veiculos-mais-alugados
+ * POST /relatorios/clientes-que-mais-alugaram
+ * POST /relatorios/completo
+ * POST /relatorios/recibo/{id}
+ * POST /relatorios/recibo-devolucao/{id}
+ */
+class RotaRelatorios extends Rota {
+    private final AluguelService aluguelService;
+    private final RelatorioService relatorioService;
+    // Cada arquivo de relatório é gerado por uma requisição de cada vez
+    private final Map<String, ReentrantLock> travasPorArquivo = new ConcurrentHashMap<>();
+
+    RotaRelatorios(AluguelService aluguelService, RelatorioService relatorioService) {
+        this.aluguelService = aluguelService;
+        this.relatorioService = relatorioService;
+    }
+
+    @Override
+    protected Resposta tratar(Requisicao requisicao) throws IOException {
+        List<String> caminho = requisicao.getCaminho();
+        if (caminho.isEmpty()) {
+            return Resposta.naoEncontrado();
+        }
+        return switch (requisicao.getMetodo()) {
+            case "GET" -> consultar(caminho, requisicao);
+            case "POST" -> gerar(caminho, requisicao);
+            default -> Resposta.metodoNaoPermitido();
+        };
+    }
+
+    private Resposta consultar(List<String> caminho, Requisicao requisicao) {
+        if (caminho.size() != 1) {
+            return Resposta.naoEncontrado();
+        }
+        return switch (caminho.get(0)) {
+            case "faturamento" -> faturamento(requisicao);
+            case "veiculos-mais-alugados" -> Resposta.ok(JsonModelo.ranking(
+                    aluguelService.obterVeiculosMaisAlugados(requisicao.parametroInt("limite", 10, 100)),
+                    "veiculo", JsonModelo::veiculo));
+            case "clientes-que-mais-alugaram" -> Resposta.ok(JsonModelo.ranking(
+                    aluguelService.obterClientesQueMaisAlugaram(requisicao.parametroInt("limite", 10, 100)),
+                    "cliente", JsonModelo::cliente));
+            default -> Resposta.naoEncontrado();
+        };
+    }
+
+    private Resposta faturamento(Requisicao requisicao) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        LocalDateTime inicio = requisicao.parametroDataHora("inicio", null);
+        LocalDateTime fim = requisicao.parametroDataHora("fim", null);
+        if (inicio == null && fim == null) {
+            json.put("total", aluguelService.calcularFaturamentoTotal());
+            json.put("porTipo", aluguelService.calcularFaturamentoPorTipo());
+            json.put("porTipoCliente", aluguelService.calcularFaturamentoPorTipoCliente());
+        } else {
+            inicio = inicio == null ? LocalDateTime.MIN : inicio;
+            fim = fim == null ? LocalDateTime.now() : fim;
+            FaturamentoAgregado.Resumo resumo = aluguelService.resumirFaturamento(inicio, fim);
+            json.put("inicio", inicio);
+            json.put("fim", fim);
+            json.put("quantidade", resumo.getQuantidade());
+            json.put("total", resumo.getTotal());
+            json.put("porTipo", resumo.getPorTipoVeiculo());
+            json.put("porTipoCliente", resumo.getPorTipoCliente());
+            if (!inicio.equals(LocalDateTime.MIN)) {
+                json.put("porDia", aluguelService.calcularFaturamentoPorDia(inicio.toLocalDate(), fim.toLocalDate()));
+            }
+        }
+        return Resposta.ok(json);
+    }
+
+    private Resposta gerar(List<String> caminho, Requisicao requisicao) throws IOException {
+        String tipo = caminho.get(0);
+        String id = caminho.size() == 2 ? caminho.get(1) : null;
+        boolean recibo = tipo.equals("recibo") || tipo.equals("recibo-devolucao");
+        if (recibo != (id != null) || caminho.size() > 2) {
+            return Resposta.naoEncontrado();
+        }
+
+        ReentrantLock trava = travasPorArquivo.computeIfAbsent(String.join("/", caminho), k -> new ReentrantLock());
+        trava.lock();
+        try {
+            switch (tipo) {
+                case "faturamento" -> {
+                    LocalDateTime fim = requisicao.parametroDataHora("fim", LocalDateTime.now());
+                    relatorioService.gerarRelatorioFaturamentoPorPeriodo(
+                            requisicao.parametroDataHora("inicio", fim.minusDays(30)), fim);
+                }
+                case "veiculos-mais-alugados" -> relatorioService.gerarRelatorioVeiculosMaisAlugados();
+                case "clientes-que-mais-alugaram" -> relatorioService.gerarRelatorioClientesQueMaisAlugaram();
+                case "completo" -> relatorioService.gerarRelatorioCompletodeAlugueis();
+                case "recibo" -> relatorioService.gerarReciboAluguel(id);
+                case "recibo-devolucao" -> relatorioService.gerarReciboDevolucao(id);
+                default -> {
+                    return Resposta.naoEncontrado();
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+        return Resposta.criado(Map.of("mensagem", "Relatório gerado no diretório relatorios/"));
+    }
+}
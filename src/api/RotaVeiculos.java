@@ -0,0 +1,81 @@
+package api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import model.TipoVeiculo;
+import model.Veiculo;
+import services.VeiculoService;
+
+/**
+ * GET  /veiculos?cursor=&tamanho=&disponiveis=true   página de veículos em ordem de nome
+ * GET  /veiculos?nome=trecho                         busca por trecho do nome
+ * GET  /veiculos/{placa}
+ * POST /veiculos                                     {"placa": "...", "nome": "...", "tipo": "PEQUENO"|"MEDIO"|"SUV"}
+ * PUT  /veiculos/{placa}                             {"tipo": "..."}
+ */
+class RotaVeiculos extends Rota {
+    private final VeiculoService veiculoService;
+
+    RotaVeiculos(VeiculoService veiculoService) {
+        this.veiculoService = veiculoService;
+    }
+
+    @Override
+    protected Resposta tratar(Requisicao requisicao) throws IOException {
+        List<String> caminho = requisicao.getCaminho();
+        if (caminho.isEmpty()) {
+            return switch (requisicao.getMetodo()) {
+                case "GET" -> listar(requisicao);
+                case "POST" -> cadastrar(requisicao);
+                default -> Resposta.metodoNaoPermitido();
+            };
+        }
+        if (caminho.size() == 1) {
+            Veiculo veiculo = veiculoService.buscarPorPlaca(caminho.get(0))
+                    .orElseThrow(() -> new NoSuchElementException("Veículo não encontrado"));
+            return switch (requisicao.getMetodo()) {
+                case "GET" -> Resposta.ok(JsonModelo.veiculo(veiculo));
+                case "PUT" -> alterar(veiculo, requisicao);
+                default -> Resposta.metodoNaoPermitido();
+            };
+        }
+        return Resposta.naoEncontrado();
+    }
+
+    private Resposta listar(Requisicao requisicao) {
+        String nome = requisicao.parametro("nome");
+        if (nome != null) {
+            return Resposta.ok(JsonModelo.lista(veiculoService.buscarPorNome(nome), JsonModelo::veiculo));
+        }
+        int tamanho = requisicao.parametroInt("tamanho", 20, 200);
+        String cursor = requisicao.parametro("cursor");
+        boolean disponiveis = "true".equals(requisicao.parametro("disponiveis"));
+        return Resposta.ok(JsonModelo.pagina(disponiveis
+                ? veiculoService.listarDisponiveisAPartirDe(cursor, tamanho)
+                : veiculoService.listarAPartirDe(cursor, tamanho), JsonModelo::veiculo));
+    }
+
+    private Resposta cadastrar(Requisicao requisicao) throws IOException {
+        Veiculo veiculo = new Veiculo(
+                requisicao.campoObrigatorio("placa"),
+                requisicao.campoObrigatorio("nome"),
+                tipo(requisicao.campoObrigatorio("tipo")));
+        veiculoService.cadastrarVeiculo(veiculo);
+        return Resposta.criado(JsonModelo.veiculo(veiculo));
+    }
+
+    private Resposta alterar(Veiculo veiculo, Requisicao requisicao) throws IOException {
+        veiculo.setTipoVeiculo(tipo(requisicao.campoObrigatorio("tipo")));
+        veiculoService.alterarVeiculo(veiculo);
+        return Resposta.ok(JsonModelo.veiculo(veiculo));
+    }
+
+    private static TipoVeiculo tipo(String valor) {
+        try {
+            return TipoVeiculo.valueOf(valor.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tipo de veículo deve ser PEQUENO, MEDIO ou SUV");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package api;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import services.AluguelService;
+import services.ClienteService;
+import services.RelatorioService;
+import services.VeiculoService;
+
+/**
+ * API HTTP/JSON embutida (com.sun.net.httpserver do próprio JDK), ao lado do menu de console.
+ *
+ * Cada requisição roda numa virtual thread, então centenas de sessões simultâneas não
+ * disputam um pool fixo de threads. Os serviços e repositórios são os mesmos do menu.
+ *
+ * Rotas: /clientes, /veiculos, /alugueis e /relatorios (detalhes em cada classe Rota*).
+ *
+ * A API não tem autenticação: por padrão só atende conexões locais (loopback). Atender
+ * as outras interfaces da máquina precisa ser pedido explicitamente (todasInterfaces).
+ */
+public class ServidorApi {
+    private static final int FILA_CONEXOES = 1024;
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+
+    /**
+     * @param todasInterfaces true para aceitar conexões de qualquer interface de rede,
+     *                        e não só da própria máquina
+     */
+    public ServidorApi(int porta,
+                       boolean todasInterfaces,
+                       ClienteService clienteService,
+                       VeiculoService veiculoService,
+                       AluguelService aluguelService,
+                       RelatorioService relatorioService) {
+        try {
+            InetSocketAddress endereco = todasInterfaces
+                    ? new InetSocketAddress(porta)
+                    : new InetSocketAddress(InetAddress.getLoopbackAddress(), porta);
+            this.servidor = HttpServer.create(endereco, FILA_CONEXOES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir a porta " + porta, e);
+        }
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(executor);
+        servidor.createContext("/clientes", new RotaClientes(clienteService));
+        servidor.createContext("/veiculos", new RotaVeiculos(veiculoService));
+        servidor.createContext("/alugueis", new RotaAlugueis(aluguelService));
+        servidor.createContext("/relatorios", new RotaRelatorios(aluguelService, relatorioService));
+    }
+
+    public void iniciar() {
+        servidor.start();
+        InetAddress endereco = servidor.getAddress().getAddress();
+        System.out.println("API HTTP disponível em http://localhost:" + getPorta() + "/"
+                + (endereco.isLoopbackAddress() ? " (só conexões locais)" : " (em todas as interfaces de rede, sem autenticação)"));
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Para de aceitar conexões e aguarda até 2s as requisições em andamento.
+     */
+    public void parar() {
+        servidor.stop(2);
+        executor.shutdown();
+    }
+}
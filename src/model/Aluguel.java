@@ -1,7 +1,11 @@
 package model;
 
+import functional.CalculadoraDesconto;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.Duration;
 
@@ -14,8 +18,14 @@ public class Aluguel implements Serializable {
     private LocalDateTime dataHoraDevolucao;
     private String localRetirada;
     private String localDevolucao;
-    private BigDecimal valorTotal;
-    private boolean ativo;
+    private Dinheiro valor;
+    private volatile boolean ativo;
+    // Devolução em andamento nesta instância (ver reservarDevolucao()); não é gravada nem copiada
+    private transient boolean devolucaoReservada;
+
+    // Desconto e valores antigos (BigDecimal) são arredondados ao centavo, metade para cima,
+    // o mesmo critério com que os valores sempre foram exibidos (%.2f)
+    private static final RoundingMode ARREDONDAMENTO = RoundingMode.HALF_UP;
 
     public Aluguel(String id, Cliente cliente, Veiculo veiculo, LocalDateTime dataHoraRetirada, String localRetirada) {
         this.id = id;
@@ -24,7 +34,21 @@ public class Aluguel implements Serializable {
         this.dataHoraRetirada = dataHoraRetirada;
         this.localRetirada = localRetirada;
         this.ativo = true;
-        this.valorTotal = BigDecimal.ZERO;
+        this.valor = Dinheiro.ZERO;
+    }
+
+    /**
+     * Reconstrói um aluguel já persistido, com o estado completo (usado na leitura dos arquivos).
+     */
+    public Aluguel(String id, Cliente cliente, Veiculo veiculo,
+                   LocalDateTime dataHoraRetirada, String localRetirada,
+                   LocalDateTime dataHoraDevolucao, String localDevolucao,
+                   Dinheiro valor, boolean ativo) {
+        this(id, cliente, veiculo, dataHoraRetirada, localRetirada);
+        this.dataHoraDevolucao = dataHoraDevolucao;
+        this.localDevolucao = localDevolucao;
+        this.valor = valor;
+        this.ativo = ativo;
     }
 
     public String getId() {
@@ -55,27 +79,80 @@ public class Aluguel implements Serializable {
         return localDevolucao;
     }
 
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    /**
+     * Valor total como BigDecimal (duas casas), para exibição e para a API.
+     */
     public BigDecimal getValorTotal() {
-        return valorTotal;
+        return valor.paraBigDecimal();
     }
 
     public boolean isAtivo() {
         return ativo;
     }
 
-    public void finalizar(LocalDateTime devolucao, String localDevolucao) {
+    /**
+     * Finaliza o aluguel com o desconto padrão do cliente (Cliente.calcularDesconto).
+     */
+    public boolean finalizar(LocalDateTime devolucao, String localDevolucao) {
+        return finalizar(devolucao, localDevolucao, cliente::calcularDesconto);
+    }
+
+    /**
+     * Finaliza o aluguel uma única vez, mesmo com devoluções simultâneas.
+     * O estado ativo é o último campo alterado: quem o lê como false já vê devolução e valor.
+     *
+     * @param desconto taxa de desconto pela quantidade de dias cobrados
+     * @return false se o aluguel já estava finalizado
+     */
+    public synchronized boolean finalizar(LocalDateTime devolucao, String localDevolucao, CalculadoraDesconto desconto) {
+        if (!ativo) {
+            return false;
+        }
         this.dataHoraDevolucao = devolucao;
         this.localDevolucao = localDevolucao;
+        this.valor = calcularValorTotal(desconto);
         this.ativo = false;
-        this.valorTotal = calcularValorTotal();
+        return true;
     }
 
-    private BigDecimal calcularValorTotal() {
+    /**
+     * Reserva a devolução desta instância sem alterar o estado visível: a devolução é feita numa
+     * cópia, que substitui esta no repositório depois de gravada. Entre devoluções simultâneas
+     * do mesmo aluguel, só uma consegue a reserva.
+     *
+     * @return false se o aluguel já estava finalizado ou com outra devolução em andamento
+     */
+    public synchronized boolean reservarDevolucao() {
+        if (!ativo || devolucaoReservada) {
+            return false;
+        }
+        devolucaoReservada = true;
+        return true;
+    }
+
+    /**
+     * Desfaz reservarDevolucao() quando a devolução não chega a ser gravada.
+     */
+    public synchronized void liberarDevolucao() {
+        devolucaoReservada = false;
+    }
+
+    /**
+     * Cópia com o estado deste instante, que não muda com devoluções posteriores (ex.: para relatórios).
+     */
+    public synchronized Aluguel copiar() {
+        return new Aluguel(id, cliente, veiculo, dataHoraRetirada, localRetirada,
+                dataHoraDevolucao, localDevolucao, valor, ativo);
+    }
+
+    private Dinheiro calcularValorTotal(CalculadoraDesconto desconto) {
         int dias = calcularDias();
-        double valorBruto = veiculo.getTipo().calcularAluguel(dias);
-        double desconto = cliente.calcularDesconto(dias);
-        double valorComDesconto = valorBruto * (1 - desconto);
-        return BigDecimal.valueOf(valorComDesconto);
+        Dinheiro valorBruto = veiculo.getTipo().calcularAluguel(dias);
+        return valorBruto.comDesconto(desconto.calcular(dias), ARREDONDAMENTO);
     }
 
     private int calcularDias() {
@@ -86,4 +163,26 @@ public class Aluguel implements Serializable {
         long horas = duracao.toHours();
         return (int) Math.ceil(horas / 24.0);
     }
+
+    /**
+     * Leitura da serialização Java (arquivos e journal antigos). Nesses registros o valor
+     * era um BigDecimal no campo valorTotal; ele é convertido para centavos aqui.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        this.id = (String) campos.get("id", null);
+        this.cliente = (Cliente) campos.get("cliente", null);
+        this.veiculo = (Veiculo) campos.get("veiculo", null);
+        this.dataHoraRetirada = (LocalDateTime) campos.get("dataHoraRetirada", null);
+        this.dataHoraDevolucao = (LocalDateTime) campos.get("dataHoraDevolucao", null);
+        this.localRetirada = (String) campos.get("localRetirada", null);
+        this.localDevolucao = (String) campos.get("localDevolucao", null);
+        this.ativo = campos.get("ativo", false);
+        if (campos.getObjectStreamClass().getField("valorTotal") != null) {
+            BigDecimal valorTotal = (BigDecimal) campos.get("valorTotal", null);
+            this.valor = valorTotal == null ? Dinheiro.ZERO : Dinheiro.de(valorTotal, ARREDONDAMENTO);
+        } else {
+            this.valor = (Dinheiro) campos.get("valor", Dinheiro.ZERO);
+        }
+    }
 }
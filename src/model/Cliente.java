@@ -3,6 +3,8 @@ package model;
 import java.io.Serializable;
 
 public abstract class Cliente implements Serializable {
+    // Valor gerado pelo serialver: mantém a leitura dos arquivos .dat antigos na migração.
+    private static final long serialVersionUID = -2003829889780473543L;
     private String documento;
     private String nome;
 
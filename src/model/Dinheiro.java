@@ -0,0 +1,129 @@
+package model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valor em reais, guardado como um long de centavos. Imutável.
+ *
+ * Somas e multiplicações por inteiros são exatas (e lançam ArithmeticException em vez de
+ * estourar); só há arredondamento ao aplicar uma taxa ou converter um BigDecimal, e nesses
+ * casos o modo de arredondamento é sempre informado por quem chama.
+ */
+public final class Dinheiro implements Comparable<Dinheiro>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final Dinheiro ZERO = new Dinheiro(0);
+
+    private static final int CASAS_DECIMAIS = 2;
+    // Taxas (ex.: descontos) são aplicadas em pontos-base: 1 = 0,01%
+    private static final long PONTOS_BASE = 10_000;
+
+    private final long centavos;
+
+    private Dinheiro(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinheiro deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos);
+    }
+
+    public static Dinheiro deReais(long reais) {
+        return deCentavos(Math.multiplyExact(reais, 100L));
+    }
+
+    /**
+     * Converte um valor decimal, arredondando ao centavo.
+     *
+     * @throws ArithmeticException se o valor não couber em centavos num long
+     */
+    public static Dinheiro de(BigDecimal valor, RoundingMode arredondamento) {
+        return deCentavos(valor.setScale(CASAS_DECIMAIS, arredondamento).unscaledValue().longValueExact());
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public Dinheiro mais(Dinheiro outro) {
+        return deCentavos(Math.addExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro menos(Dinheiro outro) {
+        return deCentavos(Math.subtractExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro vezes(long fator) {
+        return deCentavos(Math.multiplyExact(centavos, fator));
+    }
+
+    /**
+     * Valor com o desconto aplicado. A taxa (0.05 = 5%) é levada a pontos-base e o resultado
+     * é arredondado ao centavo com o modo informado.
+     *
+     * @throws IllegalArgumentException se a taxa estiver fora de [0, 1]
+     */
+    public Dinheiro comDesconto(double taxa, RoundingMode arredondamento) {
+        if (!(taxa >= 0 && taxa <= 1)) {
+            throw new IllegalArgumentException("Taxa de desconto deve estar entre 0 e 1: " + taxa);
+        }
+        long restante = PONTOS_BASE - Math.round(taxa * PONTOS_BASE);
+        return deCentavos(dividir(Math.multiplyExact(centavos, restante), PONTOS_BASE, arredondamento));
+    }
+
+    /**
+     * Mesmo valor como BigDecimal, sempre com duas casas.
+     */
+    public BigDecimal paraBigDecimal() {
+        return BigDecimal.valueOf(centavos, CASAS_DECIMAIS);
+    }
+
+    /**
+     * Divisão inteira arredondada com o modo informado, sem passar por BigDecimal (divisor > 0).
+     */
+    private static long dividir(long dividendo, long divisor, RoundingMode arredondamento) {
+        long quociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (resto == 0) {
+            return quociente;
+        }
+        int sinal = dividendo < 0 ? -1 : 1;
+        int metade = Long.compare(Math.abs(resto) * 2, divisor);
+        boolean afastarDoZero = switch (arredondamento) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sinal > 0;
+            case FLOOR -> sinal < 0;
+            case HALF_UP -> metade >= 0;
+            case HALF_DOWN -> metade > 0;
+            case HALF_EVEN -> metade > 0 || (metade == 0 && (quociente & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Valor exige arredondamento");
+        };
+        return afastarDoZero ? quociente + sinal : quociente;
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Dinheiro outro && centavos == outro.centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    /**
+     * Valor com ponto e duas casas, sem separador de milhar (ex.: 1234.50).
+     */
+    @Override
+    public String toString() {
+        return paraBigDecimal().toPlainString();
+    }
+}
@@ -1,6 +1,7 @@
 package model;
 
 public class PessoaFisica extends Cliente {
+    private static final long serialVersionUID = -243605675818525468L;
 
     public PessoaFisica(String cpf, String nome) {
         if (nome != null && nome.matches(".*\\d.*")) {
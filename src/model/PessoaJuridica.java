@@ -1,6 +1,7 @@
 package model;
 
 public class PessoaJuridica extends Cliente {
+    private static final long serialVersionUID = 9179827121786005445L;
 
     public PessoaJuridica(String cnpj, String nome) {
         super.setDocumento(cnpj);
@@ -1,22 +1,31 @@
 package model;
 
+import java.math.BigDecimal;
+
 public enum TipoVeiculo {
-    PEQUENO(100.0),
-    MEDIO(150.0),
-    SUV(200.0);
+    PEQUENO(Dinheiro.deReais(100)),
+    MEDIO(Dinheiro.deReais(150)),
+    SUV(Dinheiro.deReais(200));
+
+    private final Dinheiro diaria;
 
-    private final double valorDiaria;
+    TipoVeiculo(Dinheiro diaria) {
+        this.diaria = diaria;
+    }
 
-    TipoVeiculo(double valorDiaria) {
-        this.valorDiaria = valorDiaria;
+    public Dinheiro getDiaria() {
+        return diaria;
     }
 
-    public double getValorDiaria() {
-        return valorDiaria;
+    /**
+     * Valor da diária como BigDecimal (duas casas), para exibição.
+     */
+    public BigDecimal getValorDiaria() {
+        return diaria.paraBigDecimal();
     }
 
-    public double calcularAluguel(int dias) {
+    public Dinheiro calcularAluguel(int dias) {
         if (dias <= 0) throw new IllegalArgumentException("Dias deve ser > 0.");
-        return valorDiaria * dias;
+        return diaria.vezes(dias);
     }
 }
@@ -14,13 +14,28 @@ package model;
  *  - toString para logs/console.
  */
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 public class Veiculo implements Serializable {
 
+    // Valor gerado pelo serialver: mantém a leitura dos arquivos .dat antigos na migração.
+    private static final long serialVersionUID = -4661809101790067499L;
     private String placa;
     private String nome;            // no código do professor era "modelo"; o UML usa "nome"
     private TipoVeiculo tipo;
-    private boolean disponivel = true; // por padrão, recém-cadastrado está disponível
+    private volatile boolean disponivel = true; // por padrão, recém-cadastrado está disponível
+
+    // Acesso atômico ao campo disponivel (o campo continua boolean para manter a serialização)
+    private static final VarHandle DISPONIVEL;
+
+    static {
+        try {
+            DISPONIVEL = MethodHandles.lookup().findVarHandle(Veiculo.class, "disponivel", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Constrói um veículo válido.
@@ -74,6 +89,22 @@ public class Veiculo implements Serializable {
         this.disponivel = disponivel;
     }
 
+    /**
+     * Reserva o veículo com compare-and-set: entre pedidos simultâneos, só um consegue.
+     * @return false se o veículo já estava alugado
+     */
+    public boolean reservar() {
+        return DISPONIVEL.compareAndSet(this, true, false);
+    }
+
+    /**
+     * Libera o veículo reservado.
+     * @return false se o veículo já estava disponível
+     */
+    public boolean liberar() {
+        return DISPONIVEL.compareAndSet(this, false, true);
+    }
+
 
     /** Chave natural pensada para repositórios genéricos. */
     public String getIdentificador() {
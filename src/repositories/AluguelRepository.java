@@ -1,78 +1,494 @@
 package repositories;
 
-import java.math.BigDecimal;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import model.Aluguel;
+import model.Cliente;
+import model.Dinheiro;
+import model.TipoVeiculo;
+import model.Veiculo;
+import utils.ArquivoJournal;
 import utils.ArquivoUtil;
+import utils.Codec;
+import utils.CodecModelo;
+import utils.EscritorPersistencia;
+import utils.FaturamentoAgregado;
+import utils.Pagina;
+import utils.Ranking;
 
+/**
+ * Repositório seguro para uso por várias threads. As leituras não bloqueiam: todos os índices
+ * são estruturas concorrentes, e as listas por cliente, veículo e data são copy-on-write.
+ * As alterações são serializadas por uma ReentrantLock (e não pelo monitor), porque parte delas
+ * grava em disco e synchronized prenderia a thread portadora das virtual threads da API.
+ */
 public class AluguelRepository {
-    private List<Aluguel> aluguelList;
     private static final String ARQUIVO_ALUGUEIS = "alugueis.dat";
+    private static final String ARQUIVO_JOURNAL = "alugueis.journal";
+    private static final int LIMITE_REGISTROS_JOURNAL = 1000;
 
-    public AluguelRepository(List<Aluguel> aluguelList) {
-        this.aluguelList = aluguelList;
+    private final ClienteRepository clienteRepository;
+    private final VeiculoRepository veiculoRepository;
+    private final Codec<Aluguel> codec;
+    private final ArquivoJournal<Aluguel> journal;
+    private EscritorPersistencia persistencia;
+    private final ReentrantLock trava = new ReentrantLock();
+
+    // Aluguéis na ordem de registro; a sequência faz o papel da posição na lista
+    private final NavigableMap<Long, Aluguel> porSequencia = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> sequenciaPorId = new ConcurrentHashMap<>();
+    private long proximaSequencia;
+
+    // Índices secundários, mantidos em salvar() e reconstruídos no carregamento
+    private final NavigableSet<String> idsOrdenados = new ConcurrentSkipListSet<>();
+    private final Map<String, List<Aluguel>> indicePorCliente = new ConcurrentHashMap<>();
+    private final Map<String, List<Aluguel>> indicePorVeiculo = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Aluguel> ativosPorSequencia = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDateTime, List<Aluguel>> finalizadosPorDevolucao = new ConcurrentSkipListMap<>();
+    // Aluguéis por data de retirada + ID, base da paginação (percorrido em ordem decrescente)
+    private final NavigableMap<String, Aluguel> ordenadosPorRetirada = new ConcurrentSkipListMap<>();
+    // Somas de faturamento, atualizadas em aplicar() quando um aluguel é finalizado
+    private final FaturamentoAgregado faturamento = new FaturamentoAgregado();
+    // Aluguéis por placa e por documento, contados no registro, base dos rankings
+    private final Ranking<String> alugueisPorVeiculo = new Ranking<>();
+    private final Ranking<String> alugueisPorCliente = new Ranking<>();
+    // Incrementada sob a trava, depois que a alteração já está nos índices (ver getVersao())
+    private final AtomicLong versao = new AtomicLong();
+
+    private static final DateTimeFormatter FORMATO_CHAVE = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+
+    /**
+     * Os aluguéis são persistidos apenas com o documento do cliente e a placa do veículo;
+     * os repositórios de clientes e veículos resolvem essas chaves na leitura.
+     *
+     * @param alugueisIniciais apenas semeia o repositório; a lista não é usada depois disso
+     */
+    public AluguelRepository(List<Aluguel> alugueisIniciais,
+                             ClienteRepository clienteRepository,
+                             VeiculoRepository veiculoRepository) {
+        this.clienteRepository = clienteRepository;
+        this.veiculoRepository = veiculoRepository;
+        this.codec = CodecModelo.aluguel(
+                documento -> clienteRepository.buscarPorDocumento(documento).orElse(null),
+                placa -> veiculoRepository.buscarPorPlaca(placa).orElse(null));
+        this.journal = new ArquivoJournal<>(ARQUIVO_JOURNAL, codec);
+        reconstruirIndices(alugueisIniciais);
     }
 
+    /**
+     * Passa a compactar o journal em segundo plano, em vez de na thread que registra o aluguel.
+     */
+    public void usarPersistencia(EscritorPersistencia persistencia) {
+        this.persistencia = persistencia;
+        persistencia.registrar(ARQUIVO_ALUGUEIS, this::salvarEmArquivo);
+    }
+
+    /**
+     * Compacta o histórico: grava o snapshot completo, relê o arquivo gravado e só então
+     * rotaciona o journal (que passa a ser a geração anterior, ver carregarDeArquivo()).
+     * Bloqueia novos registros enquanto isso, para nenhum deles cair entre o snapshot e a rotação.
+     */
     public void salvarEmArquivo() {
-        ArquivoUtil.salvarLista(ARQUIVO_ALUGUEIS, aluguelList);
+        trava.lock();
+        try {
+            gravarSnapshot();
+            journal.rotacionar();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void gravarSnapshot() {
+        List<Aluguel> alugueis = new ArrayList<>(porSequencia.values());
+        ArquivoUtil.salvarLista(ARQUIVO_ALUGUEIS, alugueis, codec);
+        int relidos = ArquivoUtil.lerGeracaoAtual(ARQUIVO_ALUGUEIS, codec).size();
+        if (relidos != alugueis.size()) {
+            throw new IllegalStateException("Snapshot " + ARQUIVO_ALUGUEIS + " relido com " + relidos
+                    + " aluguéis, esperados " + alugueis.size() + "; journal mantido");
+        }
+    }
+
+    /**
+     * Executa uma leitura composta (ex.: os dados de vários relatórios) sem que nenhum aluguel
+     * seja gravado no meio dela: índices, contadores e agregados lidos refletem o mesmo instante.
+     * Bloqueia as gravações enquanto isso, então a leitura deve ser curta.
+     */
+    public <T> T lerConsistente(Supplier<T> leitura) {
+        trava.lock();
+        try {
+            return leitura.get();
+        } finally {
+            trava.unlock();
+        }
     }
 
+    /**
+     * Carrega o último snapshot e reaplica o journal por cima dele.
+     * Deve ser chamado depois do carregamento de clientes e veículos.
+     *
+     * Se o snapshot estiver ilegível, ele é reconstituído a partir do anterior (.bak) com as
+     * duas gerações do journal, separado para análise e regravado. Sem a geração anterior do
+     * journal, o .bak sozinho perderia os aluguéis compactados depois dele: o carregamento falha.
+     */
     public void carregarDeArquivo() {
-        List<Aluguel> carregados = ArquivoUtil.lerLista(ARQUIVO_ALUGUEIS);
-        if (carregados != null) {
-            aluguelList.clear();
-            aluguelList.addAll(carregados);
+        trava.lock();
+        try {
+            List<Aluguel> carregados;
+            List<Aluguel> geracaoAnterior = List.of();
+            boolean recuperado = false;
+            try {
+                carregados = ArquivoUtil.lerGeracaoAtual(ARQUIVO_ALUGUEIS, codec, this::registrarEmbutidos);
+            } catch (UncheckedIOException e) {
+                if (!journal.temGeracaoAnterior()) {
+                    throw new IllegalStateException(ARQUIVO_ALUGUEIS + " ilegível e sem a geração anterior do journal"
+                            + " para reconstituí-lo a partir do .bak; nenhum arquivo foi alterado", e);
+                }
+                System.err.println(e.getMessage() + " (" + e.getCause().getMessage() + "). Reconstituindo a partir"
+                        + " da geração anterior e do journal.");
+                carregados = ArquivoUtil.lerGeracaoAnterior(ARQUIVO_ALUGUEIS, codec);
+                geracaoAnterior = journal.lerGeracaoAnterior();
+                recuperado = true;
+            }
+            List<Aluguel> doJournal = journal.lerTodos();
+            registrarEmbutidos(carregados);
+            registrarEmbutidos(geracaoAnterior);
+            registrarEmbutidos(doJournal);
+            reconstruirIndices(carregados.stream().map(this::normalizar).collect(Collectors.toList()));
+            geracaoAnterior.stream().map(this::normalizar).forEach(this::aplicar);
+            doJournal.stream().map(this::normalizar).forEach(this::aplicar);
+            if (recuperado) {
+                // Sem rotacionar: o .bak continua o mesmo, e só com as duas gerações do journal
+                // ele ainda chega ao estado atual
+                ArquivoUtil.separarCorrompido(ARQUIVO_ALUGUEIS);
+                gravarSnapshot();
+            }
+            sincronizarDisponibilidade();
+            versao.incrementAndGet();
+        } finally {
+            trava.unlock();
         }
     }
 
-    public void salvar(Aluguel aluguel) {
-        boolean existe = aluguelList.stream().anyMatch(a -> a.getId().equals(aluguel.getId()));
+    /**
+     * O journal de aluguéis é a fonte da verdade (ver UnidadeDeTrabalho): o arquivo de veículos
+     * é gravado depois, em segundo plano, e pode estar defasado após uma parada abrupta,
+     * inclusive com uma reserva que não chegou a ser confirmada. A disponibilidade de todos
+     * os veículos segue os aluguéis ativos.
+     */
+    private void sincronizarDisponibilidade() {
+        Set<String> placasAlugadas = ativosPorSequencia.values().stream()
+                .map(a -> a.getVeiculo().getPlaca())
+                .collect(Collectors.toSet());
+        List<Veiculo> corrigidos = new ArrayList<>();
+        for (Veiculo veiculo : veiculoRepository.listarTodos()) {
+            boolean disponivel = !placasAlugadas.contains(veiculo.getPlaca());
+            if (veiculo.isDisponivel() != disponivel) {
+                veiculo.setDisponivel(disponivel);
+                corrigidos.add(veiculo);
+            }
+        }
+        if (!corrigidos.isEmpty()) {
+            veiculoRepository.salvarTodos(corrigidos);
+        }
+    }
 
-        if (!existe) {
-            aluguelList.add(aluguel);
+    private void reconstruirIndices(List<Aluguel> alugueis) {
+        porSequencia.clear();
+        sequenciaPorId.clear();
+        proximaSequencia = 0;
+        alugueisPorVeiculo.limpar();
+        alugueisPorCliente.limpar();
+        idsOrdenados.clear();
+        indicePorCliente.clear();
+        indicePorVeiculo.clear();
+        ativosPorSequencia.clear();
+        finalizadosPorDevolucao.clear();
+        ordenadosPorRetirada.clear();
+        faturamento.limpar();
+        alugueis.forEach(this::aplicar);
+    }
+
+    private void indexar(Aluguel aluguel, long sequencia) {
+        idsOrdenados.add(aluguel.getId());
+        ordenadosPorRetirada.put(chaveOrdenacao(aluguel), aluguel);
+        indicePorCliente.computeIfAbsent(aluguel.getCliente().getDocumento(), k -> new CopyOnWriteArrayList<>()).add(aluguel);
+        indicePorVeiculo.computeIfAbsent(aluguel.getVeiculo().getPlaca(), k -> new CopyOnWriteArrayList<>()).add(aluguel);
+        atualizarEstado(aluguel, sequencia);
+    }
+
+    private static String chaveOrdenacao(Aluguel aluguel) {
+        return aluguel.getDataHoraRetirada().format(FORMATO_CHAVE) + '\u0000' + aluguel.getId();
+    }
+
+    private void atualizarEstado(Aluguel aluguel, long sequencia) {
+        if (aluguel.isAtivo()) {
+            ativosPorSequencia.put(sequencia, aluguel);
         } else {
-            aluguelList.removeIf(a -> a.getId().equals(aluguel.getId()));
-            aluguelList.add(aluguel);
+            ativosPorSequencia.remove(sequencia);
+            indexarDevolucao(aluguel);
+        }
+    }
+
+    private void indexarDevolucao(Aluguel aluguel) {
+        List<Aluguel> mesmoHorario = finalizadosPorDevolucao
+                .computeIfAbsent(aluguel.getDataHoraDevolucao(), k -> new CopyOnWriteArrayList<>());
+        for (int i = 0; i < mesmoHorario.size(); i++) {
+            if (mesmoHorario.get(i).getId().equals(aluguel.getId())) {
+                mesmoHorario.set(i, aluguel);
+                return;
+            }
+        }
+        mesmoHorario.add(aluguel);
+    }
+
+    private void removerDevolucao(Aluguel aluguel) {
+        List<Aluguel> mesmoHorario = finalizadosPorDevolucao.get(aluguel.getDataHoraDevolucao());
+        if (mesmoHorario != null) {
+            mesmoHorario.removeIf(a -> a.getId().equals(aluguel.getId()));
+            if (mesmoHorario.isEmpty()) {
+                finalizadosPorDevolucao.remove(aluguel.getDataHoraDevolucao());
+            }
+        }
+    }
+
+    private static void substituir(List<Aluguel> lista, Aluguel antigo, Aluguel novo) {
+        for (int i = 0; i < lista.size(); i++) {
+            if (lista.get(i) == antigo) {
+                lista.set(i, novo);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Aluguéis de arquivos antigos trazem cópias do cliente e do veículo; os novos formatos gravam
+     * só o documento e a placa. Clientes e veículos que só existem nessas cópias são cadastrados
+     * e gravados nos seus arquivos agora, antes que um snapshot ou a migração descarte as cópias.
+     */
+    private void registrarEmbutidos(List<Aluguel> alugueis) {
+        boolean novosClientes = false;
+        boolean novosVeiculos = false;
+        for (Aluguel aluguel : alugueis) {
+            novosClientes |= clienteRepository.salvarSeAusente(aluguel.getCliente());
+            novosVeiculos |= veiculoRepository.salvarSeAusente(aluguel.getVeiculo());
+        }
+        if (novosClientes) {
+            clienteRepository.salvarEmArquivo();
+        }
+        if (novosVeiculos) {
+            veiculoRepository.salvarEmArquivo();
+        }
+    }
+
+    /**
+     * Substitui cópias de cliente/veículo vindas de arquivos antigos pelas instâncias canônicas.
+     */
+    private Aluguel normalizar(Aluguel aluguel) {
+        Cliente cliente = clienteRepository.buscarPorDocumento(aluguel.getCliente().getDocumento())
+                .orElse(aluguel.getCliente());
+        Veiculo veiculo = veiculoRepository.buscarPorPlaca(aluguel.getVeiculo().getPlaca())
+                .orElse(aluguel.getVeiculo());
+        if (cliente == aluguel.getCliente() && veiculo == aluguel.getVeiculo()) {
+            return aluguel;
+        }
+        return new Aluguel(aluguel.getId(), cliente, veiculo,
+                aluguel.getDataHoraRetirada(), aluguel.getLocalRetirada(),
+                aluguel.getDataHoraDevolucao(), aluguel.getLocalDevolucao(),
+                aluguel.getValor(), aluguel.isAtivo());
+    }
+
+    /**
+     * Acrescenta um registro ao journal e só então salva o aluguel em memória,
+     * sem regravar o histórico inteiro. Compacta quando o journal fica grande.
+     */
+    public void registrar(Aluguel aluguel) {
+        gravarReferencias(List.of(aluguel));
+        trava.lock();
+        try {
+            journal.anexar(aluguel);
+            aplicar(aluguel);
+            versao.incrementAndGet();
+            compactarSeNecessario();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Registra um lote de aluguéis com um único registro no journal (uma escrita, um fsync).
+     * O journal é gravado antes de alterar a memória: se a gravação falhar, nada do lote é aplicado.
+     */
+    public void registrarTodos(List<Aluguel> alugueis) {
+        gravarReferencias(alugueis);
+        trava.lock();
+        try {
+            journal.anexarTodos(alugueis);
+            alugueis.forEach(this::aplicar);
+            versao.incrementAndGet();
+            compactarSeNecessario();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * O journal guarda só o documento do cliente e a placa do veículo: se o aluguel referencia
+     * um cliente ou veículo cadastrado depois da última gravação do seu arquivo, esse arquivo é
+     * gravado antes, ou o registro não seria lido na próxima carga. Nos demais casos nada é
+     * gravado aqui; as outras alterações de clientes e veículos (inclusive a disponibilidade,
+     * derivada dos aluguéis na carga) ficam com a gravação em segundo plano.
+     * Chamado fora da trava, para não segurá-la durante a gravação.
+     */
+    private void gravarReferencias(List<Aluguel> alugueis) {
+        for (Aluguel aluguel : alugueis) {
+            if (aluguel.isAtivo()) {
+                clienteRepository.garantirGravado(aluguel.getCliente().getDocumento());
+                veiculoRepository.garantirGravado(aluguel.getVeiculo().getPlaca());
+            }
+        }
+    }
+
+    private void compactarSeNecessario() {
+        if (journal.getTotalRegistros() >= LIMITE_REGISTROS_JOURNAL) {
+            if (persistencia != null) {
+                persistencia.marcarAlterado(ARQUIVO_ALUGUEIS);
+            } else {
+                salvarEmArquivo();
+            }
         }
     }
 
+    /**
+     * Insere ou atualiza o aluguel pelo ID, mantendo os índices secundários em sincronia.
+     */
+    public void salvar(Aluguel aluguel) {
+        trava.lock();
+        try {
+            aplicar(aluguel);
+            versao.incrementAndGet();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Versão dos dados: muda (só cresce) depois de cada registro ou recarga.
+     * Quem lê a versão antes dos dados sabe que eles são pelo menos tão novos quanto ela;
+     * dentro de lerConsistente(), ela corresponde exatamente ao que é lido.
+     */
+    public long getVersao() {
+        return versao.get();
+    }
+
+    private void aplicar(Aluguel aluguel) {
+        Long sequencia = sequenciaPorId.get(aluguel.getId());
+
+        if (sequencia == null) {
+            sequencia = proximaSequencia++;
+            porSequencia.put(sequencia, aluguel);
+            sequenciaPorId.put(aluguel.getId(), sequencia);
+            indexar(aluguel, sequencia);
+            alugueisPorVeiculo.incrementar(aluguel.getVeiculo().getPlaca());
+            alugueisPorCliente.incrementar(aluguel.getCliente().getDocumento());
+            faturamento.contabilizar(aluguel);
+            return;
+        }
+
+        Aluguel anterior = porSequencia.put(sequencia, aluguel);
+        if (anterior != aluguel) {
+            substituir(indicePorCliente.get(anterior.getCliente().getDocumento()), anterior, aluguel);
+            substituir(indicePorVeiculo.get(anterior.getVeiculo().getPlaca()), anterior, aluguel);
+            if (!anterior.isAtivo()) {
+                removerDevolucao(anterior);
+            }
+            if (!chaveOrdenacao(anterior).equals(chaveOrdenacao(aluguel))) {
+                ordenadosPorRetirada.remove(chaveOrdenacao(anterior));
+            }
+            ordenadosPorRetirada.put(chaveOrdenacao(aluguel), aluguel);
+        }
+        atualizarEstado(aluguel, sequencia);
+        faturamento.contabilizar(aluguel);
+    }
+
     public Optional<Aluguel> buscarPorId(String id) {
-        return aluguelList.stream()
-                .filter(a -> a.getId().equals(id))
-                .findFirst();
+        Long sequencia = sequenciaPorId.get(id);
+        return sequencia == null ? Optional.empty() : Optional.ofNullable(porSequencia.get(sequencia));
     }
 
     /**
      * Correção do bug: "Aluguel não encontrado" ao gerar recibos.
      * - Adicionado método buscarPorPrefixo(String prefixo)
      * - Permite encontrar aluguéis mesmo com ID truncado no menu
+     *
+     * A busca usa o índice ordenado de IDs (tempo logarítmico). Se mais de um
+     * aluguel começar com o prefixo, lança IllegalArgumentException em vez de escolher um.
      */
-
     public Optional<Aluguel> buscarPorPrefixo(String prefixo) {
         if (prefixo == null || prefixo.isBlank()) {
             return Optional.empty();
         }
 
-        return aluguelList.stream()
-                .filter(a -> a.getId() != null && a.getId().startsWith(prefixo))
-                .findFirst();
+        Iterator<String> ids = idsComPrefixo(prefixo).iterator();
+        if (!ids.hasNext()) {
+            return Optional.empty();
+        }
+        String id = ids.next();
+        if (ids.hasNext()) {
+            throw new IllegalArgumentException("Prefixo ambíguo: " + idsComPrefixo(prefixo).size()
+                    + " aluguéis começam com '" + prefixo + "'. Informe mais caracteres do ID.");
+        }
+        return buscarPorId(id);
     }
 
+    /**
+     * Lista todos os aluguéis cujo ID começa com o prefixo, em ordem de ID.
+     */
+    public List<Aluguel> buscarTodosPorPrefixo(String prefixo) {
+        if (prefixo == null || prefixo.isBlank()) {
+            return new ArrayList<>();
+        }
+        return idsComPrefixo(prefixo).stream()
+                .map(this::buscarPorId)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    private NavigableSet<String> idsComPrefixo(String prefixo) {
+        return idsOrdenados.subSet(prefixo, true, prefixo + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Cópia somente leitura, na ordem de registro.
+     */
     public List<Aluguel> listarTodos() {
-        return aluguelList;
+        return List.copyOf(porSequencia.values());
     }
 
     /**
      * Lista aluguéis com paginação usando Stream.skip() e limit().
      */
     public List<Aluguel> listarComPaginacao(int pagina, int tamanhoPagina) {
-        return aluguelList.stream()
-                .sorted(Comparator.comparing(Aluguel::getDataHoraRetirada).reversed())
+        return ordenadosPorRetirada.descendingMap().values().stream()
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
@@ -82,7 +498,7 @@ public class AluguelRepository {
      * Busca aluguéis com filtro personalizado usando Predicate.
      */
     public List<Aluguel> buscarComFiltro(Predicate<Aluguel> filtro) {
-        return aluguelList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .collect(Collectors.toList());
     }
@@ -91,37 +507,46 @@ public class AluguelRepository {
      * Busca aluguéis com filtro e paginação.
      */
     public List<Aluguel> buscarComFiltroPaginado(Predicate<Aluguel> filtro, int pagina, int tamanhoPagina) {
-        return aluguelList.stream()
+        return ordenadosPorRetirada.descendingMap().values().stream()
                 .filter(filtro)
-                .sorted(Comparator.comparing(Aluguel::getDataHoraRetirada).reversed())
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Paginação por cursor: aluguéis da retirada mais recente para a mais antiga,
+     * a partir do cursor da página anterior (null para a primeira página).
+     */
+    public Pagina<Aluguel> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return buscarComFiltroAPartirDe(a -> true, cursor, tamanhoPagina);
+    }
+
+    /**
+     * Paginação por cursor com filtro.
+     */
+    public Pagina<Aluguel> buscarComFiltroAPartirDe(Predicate<Aluguel> filtro, String cursor, int tamanhoPagina) {
+        String aPartirDe = cursor == null ? null : Pagina.decodificarCursor(cursor);
+        return Pagina.deIndice(ordenadosPorRetirada.descendingMap(), aPartirDe, filtro, tamanhoPagina, chave -> chave);
+    }
+
     public List<Aluguel> buscarAtivos() {
-        return aluguelList.stream()
-                .filter(Aluguel::isAtivo)
-                .collect(Collectors.toList());
+        return new ArrayList<>(ativosPorSequencia.values());
     }
 
     public List<Aluguel> buscarPorCliente(String documento) {
-        return aluguelList.stream()
-                .filter(a -> a.getCliente().getDocumento().equals(documento))
-                .collect(Collectors.toList());
+        return new ArrayList<>(indicePorCliente.getOrDefault(documento, List.of()));
     }
 
     public List<Aluguel> buscarPorVeiculo(String placa) {
-        return aluguelList.stream()
-                .filter(a -> a.getVeiculo().getPlaca().equals(placa))
-                .collect(Collectors.toList());
+        return new ArrayList<>(indicePorVeiculo.getOrDefault(placa, List.of()));
     }
 
     /**
      * Busca aluguéis finalizados (não ativos).
      */
     public List<Aluguel> buscarFinalizados() {
-        return aluguelList.stream()
+        return porSequencia.values().stream()
                 .filter(a -> !a.isAtivo())
                 .collect(Collectors.toList());
     }
@@ -130,50 +555,150 @@ public class AluguelRepository {
      * Busca aluguéis finalizados com paginação.
      */
     public List<Aluguel> buscarFinalizadosComPaginacao(int pagina, int tamanhoPagina) {
-        return aluguelList.stream()
-                .filter(a -> !a.isAtivo())
-                .sorted(Comparator.comparing(Aluguel::getDataHoraDevolucao).reversed())
+        return finalizadosPorDevolucao.descendingMap().values().stream()
+                .flatMap(List::stream)
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Busca aluguéis por período (entre duas datas).
+     * Busca aluguéis finalizados por período (entre duas datas, inclusive).
+     * Percorre apenas a faixa do índice ordenado por data de devolução.
      */
     public List<Aluguel> buscarPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
-        return aluguelList.stream()
-                .filter(a -> !a.isAtivo())
-                .filter(a -> a.getDataHoraDevolucao() != null)
-                .filter(a -> !a.getDataHoraDevolucao().isBefore(inicio))
-                .filter(a -> !a.getDataHoraDevolucao().isAfter(fim))
+        if (inicio.isAfter(fim)) {
+            return new ArrayList<>();
+        }
+        return finalizadosPorDevolucao.subMap(inicio, true, fim, true).values().stream()
+                .flatMap(List::stream)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Calcula faturamento total de aluguéis finalizados.
+     * Faturamento total de aluguéis finalizados (agregado, sem percorrer o histórico).
      */
-    public BigDecimal calcularFaturamentoTotal() {
-        return aluguelList.stream()
-                .filter(a -> !a.isAtivo())
-                .map(Aluguel::getValorTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Dinheiro calcularFaturamentoTotal() {
+        return faturamento.getGeral().getTotal();
+    }
+
+    /**
+     * Faturamento por tipo de veículo dos aluguéis finalizados.
+     */
+    public Map<TipoVeiculo, Dinheiro> calcularFaturamentoPorTipo() {
+        return faturamento.getGeral().getPorTipoVeiculo();
+    }
+
+    /**
+     * Faturamento por tipo de cliente ("PF"/"PJ") dos aluguéis finalizados.
+     */
+    public Map<String, Dinheiro> calcularFaturamentoPorTipoCliente() {
+        return faturamento.getGeral().getPorTipoCliente();
+    }
+
+    /**
+     * Faturamento por dia de devolução entre as datas (inclusive).
+     */
+    public Map<LocalDate, Dinheiro> calcularFaturamentoPorDia(LocalDate inicio, LocalDate fim) {
+        return faturamento.totalPorDia(inicio, fim);
     }
 
     /**
      * Calcula faturamento por período.
      */
-    public BigDecimal calcularFaturamentoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
-        return buscarPorPeriodo(inicio, fim).stream()
-                .map(Aluguel::getValorTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Dinheiro calcularFaturamentoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        return resumirFaturamento(inicio, fim).getTotal();
+    }
+
+    /**
+     * Resumo do faturamento das devoluções entre os instantes (inclusive).
+     * Os dias inteiros do intervalo vêm dos resumos diários; só as devoluções dos dias
+     * parcialmente cobertos, nas bordas, são percorridas uma a uma.
+     */
+    public FaturamentoAgregado.Resumo resumirFaturamento(LocalDateTime inicio, LocalDateTime fim) {
+        if (inicio.isAfter(fim)) {
+            return FaturamentoAgregado.Resumo.VAZIO;
+        }
+        LocalDate primeiroDiaInteiro = inicio.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? inicio.toLocalDate() : inicio.toLocalDate().plusDays(1);
+        LocalDate ultimoDiaInteiro = fim.toLocalTime().equals(LocalTime.MAX)
+                ? fim.toLocalDate() : fim.toLocalDate().minusDays(1);
+        if (primeiroDiaInteiro.isAfter(ultimoDiaInteiro)) {
+            return somarDevolucoes(FaturamentoAgregado.Resumo.VAZIO, inicio, true, fim, true);
+        }
+
+        FaturamentoAgregado.Resumo resumo = faturamento.somarDias(primeiroDiaInteiro, ultimoDiaInteiro);
+        resumo = somarDevolucoes(resumo, inicio, true, primeiroDiaInteiro.atStartOfDay(), false);
+        if (ultimoDiaInteiro.isBefore(fim.toLocalDate())) {
+            resumo = somarDevolucoes(resumo, ultimoDiaInteiro.plusDays(1).atStartOfDay(), true, fim, true);
+        }
+        return resumo;
+    }
+
+    private FaturamentoAgregado.Resumo somarDevolucoes(FaturamentoAgregado.Resumo resumo,
+                                                      LocalDateTime inicio, boolean incluiInicio,
+                                                      LocalDateTime fim, boolean incluiFim) {
+        for (List<Aluguel> mesmoHorario : finalizadosPorDevolucao.subMap(inicio, incluiInicio, fim, incluiFim).values()) {
+            for (Aluguel aluguel : mesmoHorario) {
+                resumo = resumo.mais(aluguel);
+            }
+        }
+        return resumo;
+    }
+
+    /**
+     * Os veículos com mais aluguéis, a partir dos contadores (sem agrupar o histórico).
+     */
+    public List<Ranking.Posicao<Veiculo>> buscarVeiculosMaisAlugados(int limite) {
+        return alugueisPorVeiculo.maiores(limite).stream()
+                .map(posicao -> posicao.converter(placa -> indicePorVeiculo.get(placa).get(0).getVeiculo()))
+                .toList();
+    }
+
+    /**
+     * Os clientes com mais aluguéis, a partir dos contadores (sem agrupar o histórico).
+     */
+    public List<Ranking.Posicao<Cliente>> buscarClientesQueMaisAlugaram(int limite) {
+        return alugueisPorCliente.maiores(limite).stream()
+                .map(posicao -> posicao.converter(documento -> indicePorCliente.get(documento).get(0).getCliente()))
+                .toList();
+    }
+
+    public int contarVeiculosAlugados() {
+        return alugueisPorVeiculo.tamanho();
+    }
+
+    public int contarClientesQueAlugaram() {
+        return alugueisPorCliente.tamanho();
+    }
+
+    /**
+     * Quantidade de aluguéis do cliente (contador mantido a cada registro).
+     */
+    public long contarPorCliente(String documento) {
+        return alugueisPorCliente.contar(documento);
+    }
+
+    public int contarTodos() {
+        return porSequencia.size();
+    }
+
+    public int contarAtivos() {
+        return ativosPorSequencia.size();
+    }
+
+    /**
+     * Quantidade de aluguéis finalizados (agregado, sem percorrer o histórico).
+     */
+    public long contarFinalizados() {
+        return faturamento.getGeral().getQuantidade();
     }
 
     /**
      * Conta o total de aluguéis que atendem a um filtro.
      */
     public long contarComFiltro(Predicate<Aluguel> filtro) {
-        return aluguelList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .count();
     }
@@ -1,52 +1,174 @@
 package repositories;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import model.Cliente;
 import utils.ArquivoUtil;
+import utils.CodecModelo;
+import utils.EscritorPersistencia;
+import utils.IndiceTrigramas;
+import utils.Pagina;
 
+/**
+ * Repositório seguro para uso por várias threads (vários balcões no mesmo processo).
+ * As leituras não bloqueiam: os clientes, na ordem de cadastro, e os índices ficam em mapas
+ * concorrentes, e cada inserção custa O(log n) em vez de copiar a coleção.
+ * As alterações são serializadas pelo monitor do repositório.
+ */
 public class ClienteRepository {
 
-    private List<Cliente> clienteList;
     private static final String ARQUIVO_CLIENTES = "clientes.dat";
 
-    public ClienteRepository(List<Cliente> clienteList) {
-        this.clienteList = clienteList;
+    // Clientes na ordem de cadastro; a sequência faz o papel da posição na lista
+    private final NavigableMap<Long, Cliente> porSequencia = new ConcurrentSkipListMap<>();
+    private long proximaSequencia;
+
+    // Índice documento (CPF ou CNPJ) -> cliente, mantido em toda alteração
+    private final Map<String, Cliente> indicePorDocumento = new ConcurrentHashMap<>();
+    private final IndiceTrigramas<Cliente> indicePorNome = new IndiceTrigramas<>();
+    // Clientes ordenados por nome (desempate pelo documento), base da paginação
+    private final NavigableMap<String, Cliente> ordenadosPorNome = new ConcurrentSkipListMap<>();
+    private EscritorPersistencia persistencia;
+    // Clientes inseridos que ainda não estão no arquivo (chave: documento)
+    private final Set<String> naoGravados = ConcurrentHashMap.newKeySet();
+    // Incrementada depois de cada alteração (ver getVersao())
+    private final AtomicLong versao = new AtomicLong();
+
+    /**
+     * @param clientesIniciais apenas semeia o repositório; a lista não é usada depois disso
+     */
+    public ClienteRepository(List<Cliente> clientesIniciais) {
+        reconstruirIndice(clientesIniciais);
     }
 
     public String getIdentificador(Cliente cliente) {
         return cliente.getDocumento();
     }
 
+    /**
+     * Passa a gravar o arquivo em segundo plano: salvar() só marca o arquivo como alterado.
+     */
+    public void usarPersistencia(EscritorPersistencia persistencia) {
+        this.persistencia = persistencia;
+        persistencia.registrar(ARQUIVO_CLIENTES, this::salvarEmArquivo);
+    }
+
     public void salvarEmArquivo() {
-        ArquivoUtil.salvarLista(ARQUIVO_CLIENTES, clienteList);
+        // as chaves são lidas antes da cópia: toda chave do conjunto já está em porSequencia
+        Set<String> gravados = Set.copyOf(naoGravados);
+        ArquivoUtil.salvarLista(ARQUIVO_CLIENTES, new ArrayList<>(porSequencia.values()), CodecModelo.CLIENTE);
+        naoGravados.removeAll(gravados);
+    }
+
+    /**
+     * Garante que o cliente com este documento já está no arquivo, gravando só este arquivo se ele
+     * foi inserido depois da última gravação. Quem referencia o cliente pela chave num registro
+     * durável (o journal de aluguéis) chama antes de gravar o registro.
+     */
+    public void garantirGravado(String documento) {
+        if (naoGravados.contains(documento)) {
+            if (persistencia != null) {
+                persistencia.aguardarGravacao(ARQUIVO_CLIENTES);
+            } else {
+                salvarEmArquivo();
+            }
+        }
+    }
+
+    public synchronized void carregarDeArquivo() {
+        reconstruirIndice(ArquivoUtil.lerLista(ARQUIVO_CLIENTES, CodecModelo.CLIENTE));
+        naoGravados.clear();
+        versao.incrementAndGet();
+    }
+
+    /**
+     * Versão dos dados: muda (só cresce) depois de cada alteração, inclusive recargas.
+     * Quem lê a versão antes dos dados sabe que eles são pelo menos tão novos quanto ela.
+     */
+    public long getVersao() {
+        return versao.get();
+    }
+
+    private void reconstruirIndice(List<Cliente> clientes) {
+        porSequencia.clear();
+        proximaSequencia = 0;
+        indicePorDocumento.clear();
+        indicePorNome.limpar();
+        ordenadosPorNome.clear();
+        clientes.forEach(this::inserir);
+    }
+
+    private void inserir(Cliente cliente) {
+        porSequencia.put(proximaSequencia++, cliente);
+        indicePorDocumento.put(cliente.getDocumento(), cliente);
+        indicePorNome.adicionar(cliente, cliente.getNome());
+        ordenadosPorNome.put(chaveOrdenacao(cliente), cliente);
+        naoGravados.add(cliente.getDocumento());
     }
 
-    public void carregarDeArquivo() {
-        this.clienteList = ArquivoUtil.lerLista(ARQUIVO_CLIENTES);
+    private static String chaveOrdenacao(Cliente cliente) {
+        return cliente.getNome() + '\u0000' + cliente.getDocumento();
     }
 
     public void salvar(Cliente cliente){
-        clienteList.add(cliente);
+        synchronized (this) {
+            inserir(cliente);
+        }
+        registrarAlteracao();
+    }
+
+    /**
+     * Verifica o documento e insere numa única operação atômica.
+     *
+     * @return false se já existir cliente com o mesmo documento
+     */
+    public boolean salvarSeAusente(Cliente cliente) {
+        synchronized (this) {
+            if (indicePorDocumento.containsKey(cliente.getDocumento())) {
+                return false;
+            }
+            inserir(cliente);
+        }
+        registrarAlteracao();
+        return true;
     }
 
+    private void registrarAlteracao() {
+        versao.incrementAndGet();
+        if (persistencia != null) {
+            persistencia.marcarAlterado(ARQUIVO_CLIENTES);
+        } else {
+            salvarEmArquivo();
+        }
+    }
+
+    /**
+     * Cópia somente leitura, na ordem de cadastro; não é afetada por inserções concorrentes.
+     */
     public List<Cliente> listarTodos() {
-        return clienteList;
+        return Collections.unmodifiableList(new ArrayList<>(porSequencia.values()));
     }
 
     /**
      * Lista clientes com paginação usando Stream.skip() e limit().
+     * Percorre o índice já ordenado por nome, sem reordenar a coleção.
      *
      * @param pagina número da página (começa em 0)
      * @param tamanhoPagina quantidade de itens por página
      * @return lista de clientes da página solicitada
      */
     public List<Cliente> listarComPaginacao(int pagina, int tamanhoPagina) {
-        return clienteList.stream()
-                .sorted(Comparator.comparing(Cliente::getNome))
+        return ordenadosPorNome.values().stream()
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
@@ -59,7 +181,7 @@ public class ClienteRepository {
      * @return lista de clientes que atendem ao filtro
      */
     public List<Cliente> buscarComFiltro(Predicate<Cliente> filtro) {
-        return clienteList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .collect(Collectors.toList());
     }
@@ -68,33 +190,45 @@ public class ClienteRepository {
      * Busca clientes com filtro e paginação.
      */
     public List<Cliente> buscarComFiltroPaginado(Predicate<Cliente> filtro, int pagina, int tamanhoPagina) {
-        return clienteList.stream()
+        return ordenadosPorNome.values().stream()
                 .filter(filtro)
-                .sorted(Comparator.comparing(Cliente::getNome))
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Paginação por cursor: lista clientes em ordem de nome a partir do cursor
+     * da página anterior (null para a primeira página).
+     */
+    public Pagina<Cliente> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return buscarComFiltroAPartirDe(c -> true, cursor, tamanhoPagina);
+    }
+
+    /**
+     * Paginação por cursor com filtro.
+     */
+    public Pagina<Cliente> buscarComFiltroAPartirDe(Predicate<Cliente> filtro, String cursor, int tamanhoPagina) {
+        String aPartirDe = cursor == null ? null : Pagina.decodificarCursor(cursor);
+        return Pagina.deIndice(ordenadosPorNome, aPartirDe, filtro, tamanhoPagina, chave -> chave);
+    }
+
+    /**
+     * Busca por trecho do nome, sem diferenciar maiúsculas nem acentos (índice de trigramas).
+     */
     public List<Cliente> buscarPorNomeParcial(String termo) {
-        if (termo == null) termo = "";
-        final String t = termo.toLowerCase();
-        return clienteList.stream()
-                .filter(c -> c.getNome() != null && c.getNome().toLowerCase().contains(t))
-                .collect(Collectors.toList());
+        return indicePorNome.buscar(termo);
     }
 
     public Optional<Cliente> buscarPorDocumento(String documento) {
-        return clienteList.stream()
-                .filter(c -> c.getDocumento().equals(documento))
-                .findFirst();
+        return Optional.ofNullable(indicePorDocumento.get(documento));
     }
 
     /**
      * Conta o total de clientes que atendem a um filtro.
      */
     public long contarComFiltro(Predicate<Cliente> filtro) {
-        return clienteList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .count();
     }
@@ -0,0 +1,96 @@
+package repositories;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import model.Aluguel;
+import model.Veiculo;
+
+/**
+ * Agrupa as alterações de uma operação (aluguéis e veículos) e as confirma com uma única
+ * gravação durável: um registro no journal de aluguéis.
+ *
+ * O registro cobre também os veículos, porque a disponibilidade é derivada dos aluguéis ativos
+ * na carga (AluguelRepository.sincronizarDisponibilidade); o arquivo de veículos é só gravado
+ * depois, em segundo plano. Se a gravação falhar, as alterações já feitas em memória são
+ * desfeitas, na ordem inversa, e a exceção é repassada.
+ *
+ * Uso único: cada operação cria a sua unidade e chama confirmar() uma vez.
+ */
+public class UnidadeDeTrabalho {
+    private final AluguelRepository aluguelRepository;
+    private final VeiculoRepository veiculoRepository;
+
+    private final List<Aluguel> alugueis = new ArrayList<>();
+    private final Set<Veiculo> veiculos = new LinkedHashSet<>();
+    private final List<Runnable> desfazer = new ArrayList<>();
+    private final List<Runnable> aoConfirmar = new ArrayList<>();
+    private boolean confirmada;
+
+    public UnidadeDeTrabalho(AluguelRepository aluguelRepository, VeiculoRepository veiculoRepository) {
+        this.aluguelRepository = aluguelRepository;
+        this.veiculoRepository = veiculoRepository;
+    }
+
+    /**
+     * Aluguel novo ou alterado a gravar.
+     *
+     * @param desfazer reverte em memória a alteração já feita no aluguel (null se não houver)
+     */
+    public void registrar(Aluguel aluguel, Runnable desfazer) {
+        verificarAberta();
+        alugueis.add(aluguel);
+        if (desfazer != null) {
+            this.desfazer.add(desfazer);
+        }
+    }
+
+    /**
+     * Veículo já alterado em memória (ex.: reservado), a salvar depois da confirmação.
+     *
+     * @param desfazer reverte a alteração se a confirmação falhar (null se não houver)
+     */
+    public void salvar(Veiculo veiculo, Runnable desfazer) {
+        verificarAberta();
+        veiculos.add(veiculo);
+        if (desfazer != null) {
+            this.desfazer.add(desfazer);
+        }
+    }
+
+    /**
+     * Alteração do veículo que só pode valer depois da gravação (ex.: liberar o carro devolvido,
+     * que outro balcão poderia reservar antes de um eventual desfazer).
+     */
+    public void salvarAoConfirmar(Veiculo veiculo, Runnable alteracao) {
+        verificarAberta();
+        veiculos.add(veiculo);
+        aoConfirmar.add(alteracao);
+    }
+
+    /**
+     * Grava todos os aluguéis num único registro do journal e, só então, aplica as alterações
+     * pendentes e salva os veículos (uma marcação do arquivo de veículos para a unidade toda).
+     */
+    public void confirmar() {
+        verificarAberta();
+        confirmada = true;
+        try {
+            aluguelRepository.registrarTodos(alugueis);
+        } catch (RuntimeException e) {
+            for (int i = desfazer.size() - 1; i >= 0; i--) {
+                desfazer.get(i).run();
+            }
+            throw e;
+        }
+        aoConfirmar.forEach(Runnable::run);
+        veiculoRepository.salvarTodos(veiculos);
+    }
+
+    private void verificarAberta() {
+        if (confirmada) {
+            throw new IllegalStateException("Unidade de trabalho já confirmada");
+        }
+    }
+}
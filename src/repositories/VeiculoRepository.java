@@ -1,52 +1,200 @@
 package repositories;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import model.TipoVeiculo;
 import model.Veiculo;
 import utils.ArquivoUtil;
+import utils.CodecModelo;
+import utils.EscritorPersistencia;
+import utils.IndiceTrigramas;
+import utils.Pagina;
 
+/**
+ * Repositório seguro para uso por várias threads, no mesmo esquema do ClienteRepository:
+ * veículos e índices em mapas concorrentes e alterações serializadas pelo monitor.
+ */
 public class VeiculoRepository {
-    private List<Veiculo> veiculoList;
     private static final String ARQUIVO_VEICULOS = "veiculos.dat";
 
-    public VeiculoRepository(List<Veiculo> veiculoList) {
-        this.veiculoList = veiculoList;
+    // Veículos na ordem de cadastro; a sequência faz o papel da posição na lista
+    private final NavigableMap<Long, Veiculo> porSequencia = new ConcurrentSkipListMap<>();
+    private long proximaSequencia;
+    private final Map<String, Long> sequenciaPorPlaca = new ConcurrentHashMap<>();
+    // Índice placa -> veículo, mantido em toda alteração
+    private final Map<String, Veiculo> indicePorPlaca = new ConcurrentHashMap<>();
+    private final IndiceTrigramas<Veiculo> indicePorNome = new IndiceTrigramas<>();
+    // Veículos ordenados por nome (desempate pela placa), base da paginação
+    private final NavigableMap<String, Veiculo> ordenadosPorNome = new ConcurrentSkipListMap<>();
+    private EscritorPersistencia persistencia;
+    // Veículos inseridos que ainda não estão no arquivo (chave: placa)
+    private final Set<String> naoGravados = ConcurrentHashMap.newKeySet();
+    // Incrementada depois de cada alteração (ver getVersao())
+    private final AtomicLong versao = new AtomicLong();
+
+    /**
+     * @param veiculosIniciais apenas semeia o repositório; a lista não é usada depois disso
+     */
+    public VeiculoRepository(List<Veiculo> veiculosIniciais) {
+        reconstruirIndice(veiculosIniciais);
+    }
+
+    /**
+     * Passa a gravar o arquivo em segundo plano: salvar() só marca o arquivo como alterado.
+     */
+    public void usarPersistencia(EscritorPersistencia persistencia) {
+        this.persistencia = persistencia;
+        persistencia.registrar(ARQUIVO_VEICULOS, this::salvarEmArquivo);
     }
 
     public void salvarEmArquivo() {
-        ArquivoUtil.salvarLista(ARQUIVO_VEICULOS, veiculoList);
+        // as chaves são lidas antes da cópia: toda chave do conjunto já está em porSequencia
+        Set<String> gravados = Set.copyOf(naoGravados);
+        ArquivoUtil.salvarLista(ARQUIVO_VEICULOS, new ArrayList<>(porSequencia.values()), CodecModelo.VEICULO);
+        naoGravados.removeAll(gravados);
     }
 
-    public void carregarDeArquivo() {
-        List<Veiculo> carregados = ArquivoUtil.lerLista(ARQUIVO_VEICULOS);
-        if (carregados != null) {
-            veiculoList.clear();
-            veiculoList.addAll(carregados);
+    /**
+     * Garante que o veículo com esta placa já está no arquivo, gravando só este arquivo se ele
+     * foi inserido depois da última gravação. Quem referencia o veículo pela chave num registro
+     * durável (o journal de aluguéis) chama antes de gravar o registro.
+     */
+    public void garantirGravado(String placa) {
+        if (naoGravados.contains(placa)) {
+            if (persistencia != null) {
+                persistencia.aguardarGravacao(ARQUIVO_VEICULOS);
+            } else {
+                salvarEmArquivo();
+            }
         }
     }
 
+    public synchronized void carregarDeArquivo() {
+        reconstruirIndice(ArquivoUtil.lerLista(ARQUIVO_VEICULOS, CodecModelo.VEICULO));
+        naoGravados.clear();
+        versao.incrementAndGet();
+    }
+
+    /**
+     * Versão dos dados: muda (só cresce) depois de cada alteração, inclusive reservas e recargas.
+     * Quem lê a versão antes dos dados sabe que eles são pelo menos tão novos quanto ela.
+     */
+    public long getVersao() {
+        return versao.get();
+    }
+
+    private void reconstruirIndice(List<Veiculo> veiculos) {
+        porSequencia.clear();
+        sequenciaPorPlaca.clear();
+        proximaSequencia = 0;
+        indicePorPlaca.clear();
+        indicePorNome.limpar();
+        ordenadosPorNome.clear();
+        veiculos.forEach(this::inserir);
+    }
+
+    private static String chaveOrdenacao(Veiculo veiculo) {
+        return veiculo.getNome() + '\u0000' + veiculo.getPlaca();
+    }
+
+    /**
+     * Insere ou substitui o veículo pela placa, usando o índice; salvar a mesma instância
+     * (o caso comum) custa tempo constante.
+     */
     public void salvar(Veiculo veiculo) {
-        if (buscarPorPlaca(veiculo.getPlaca()).isEmpty()) {
-            veiculoList.add(veiculo);
+        if (indicePorPlaca.get(veiculo.getPlaca()) == veiculo) {
+            // mesma instância (ex.: reserva/liberação): os índices não mudam, sem disputar o monitor
+            registrarAlteracao();
+            return;
+        }
+        atualizar(veiculo);
+        registrarAlteracao();
+    }
+
+    /**
+     * Salva vários veículos com uma única gravação do arquivo (ou uma única marcação de alteração).
+     */
+    public void salvarTodos(Collection<Veiculo> veiculos) {
+        for (Veiculo veiculo : veiculos) {
+            if (indicePorPlaca.get(veiculo.getPlaca()) != veiculo) {
+                atualizar(veiculo);
+            }
+        }
+        registrarAlteracao();
+    }
+
+    private void atualizar(Veiculo veiculo) {
+        synchronized (this) {
+            Long sequencia = sequenciaPorPlaca.get(veiculo.getPlaca());
+            if (sequencia == null) {
+                inserir(veiculo);
+            } else {
+                porSequencia.put(sequencia, veiculo);
+                Veiculo anterior = indicePorPlaca.put(veiculo.getPlaca(), veiculo);
+                if (!chaveOrdenacao(anterior).equals(chaveOrdenacao(veiculo))) {
+                    ordenadosPorNome.remove(chaveOrdenacao(anterior));
+                }
+                indicePorNome.adicionar(veiculo, veiculo.getNome());
+                ordenadosPorNome.put(chaveOrdenacao(veiculo), veiculo);
+            }
+        }
+    }
+
+    /**
+     * Verifica a placa e insere numa única operação atômica.
+     *
+     * @return false se já existir veículo com a mesma placa
+     */
+    public boolean salvarSeAusente(Veiculo veiculo) {
+        synchronized (this) {
+            if (indicePorPlaca.containsKey(veiculo.getPlaca())) {
+                return false;
+            }
+            inserir(veiculo);
+        }
+        registrarAlteracao();
+        return true;
+    }
+
+    private void inserir(Veiculo veiculo) {
+        long sequencia = proximaSequencia++;
+        porSequencia.put(sequencia, veiculo);
+        sequenciaPorPlaca.put(veiculo.getPlaca(), sequencia);
+        indicePorPlaca.put(veiculo.getPlaca(), veiculo);
+        indicePorNome.adicionar(veiculo, veiculo.getNome());
+        ordenadosPorNome.put(chaveOrdenacao(veiculo), veiculo);
+        naoGravados.add(veiculo.getPlaca());
+    }
+
+    private void registrarAlteracao() {
+        versao.incrementAndGet();
+        if (persistencia != null) {
+            persistencia.marcarAlterado(ARQUIVO_VEICULOS);
         } else {
-            veiculoList.removeIf(v -> v.getPlaca().equals(veiculo.getPlaca()));
-            veiculoList.add(veiculo);
+            salvarEmArquivo();
         }
-        salvarEmArquivo();
     }
 
     public Optional<Veiculo> buscarPorPlaca(String placa) {
-        return veiculoList.stream()
-                .filter(v -> v.getPlaca().equals(placa))
-                .findFirst();
+        return Optional.ofNullable(indicePorPlaca.get(placa));
     }
 
+    /**
+     * Cópia somente leitura, na ordem de cadastro; não é afetada por alterações concorrentes.
+     */
     public List<Veiculo> listarTodos() {
-        return veiculoList;
+        return Collections.unmodifiableList(new ArrayList<>(porSequencia.values()));
     }
 
     /**
@@ -57,8 +205,7 @@ public class VeiculoRepository {
      * @return lista de veículos da página solicitada
      */
     public List<Veiculo> listarComPaginacao(int pagina, int tamanhoPagina) {
-        return veiculoList.stream()
-                .sorted(Comparator.comparing(Veiculo::getNome))
+        return ordenadosPorNome.values().stream()
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
@@ -68,7 +215,7 @@ public class VeiculoRepository {
      * Busca veículos com filtro personalizado usando Predicate.
      */
     public List<Veiculo> buscarComFiltro(Predicate<Veiculo> filtro) {
-        return veiculoList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .collect(Collectors.toList());
     }
@@ -77,24 +224,38 @@ public class VeiculoRepository {
      * Busca veículos com filtro e paginação.
      */
     public List<Veiculo> buscarComFiltroPaginado(Predicate<Veiculo> filtro, int pagina, int tamanhoPagina) {
-        return veiculoList.stream()
+        return ordenadosPorNome.values().stream()
                 .filter(filtro)
-                .sorted(Comparator.comparing(Veiculo::getNome))
                 .skip((long) pagina * tamanhoPagina)
                 .limit(tamanhoPagina)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Paginação por cursor: lista veículos em ordem de nome a partir do cursor
+     * da página anterior (null para a primeira página).
+     */
+    public Pagina<Veiculo> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return buscarComFiltroAPartirDe(v -> true, cursor, tamanhoPagina);
+    }
+
+    /**
+     * Paginação por cursor com filtro.
+     */
+    public Pagina<Veiculo> buscarComFiltroAPartirDe(Predicate<Veiculo> filtro, String cursor, int tamanhoPagina) {
+        String aPartirDe = cursor == null ? null : Pagina.decodificarCursor(cursor);
+        return Pagina.deIndice(ordenadosPorNome, aPartirDe, filtro, tamanhoPagina, chave -> chave);
+    }
+
+    /**
+     * Busca por trecho do nome, sem diferenciar maiúsculas nem acentos (índice de trigramas).
+     */
     public List<Veiculo> buscarPorNomeParcial(String termo) {
-        if (termo == null) termo = "";
-        final String t = termo.toLowerCase();
-        return veiculoList.stream()
-                .filter(v -> v.getNome() != null && v.getNome().toLowerCase().contains(t))
-                .collect(Collectors.toList());
+        return indicePorNome.buscar(termo);
     }
 
     public List<Veiculo> buscarDisponiveis() {
-        return veiculoList.stream()
+        return porSequencia.values().stream()
                 .filter(Veiculo::isDisponivel)
                 .collect(Collectors.toList());
     }
@@ -103,19 +264,21 @@ public class VeiculoRepository {
      * Busca veículos disponíveis com paginação.
      */
     public List<Veiculo> buscarDisponiveisComPaginacao(int pagina, int tamanhoPagina) {
-        return veiculoList.stream()
-                .filter(Veiculo::isDisponivel)
-                .sorted(Comparator.comparing(Veiculo::getNome))
-                .skip((long) pagina * tamanhoPagina)
-                .limit(tamanhoPagina)
-                .collect(Collectors.toList());
+        return buscarComFiltroPaginado(Veiculo::isDisponivel, pagina, tamanhoPagina);
+    }
+
+    /**
+     * Veículos disponíveis com paginação por cursor.
+     */
+    public Pagina<Veiculo> buscarDisponiveisAPartirDe(String cursor, int tamanhoPagina) {
+        return buscarComFiltroAPartirDe(Veiculo::isDisponivel, cursor, tamanhoPagina);
     }
 
     /**
      * Busca veículos por tipo.
      */
     public List<Veiculo> buscarPorTipo(TipoVeiculo tipo) {
-        return veiculoList.stream()
+        return porSequencia.values().stream()
                 .filter(v -> v.getTipo() == tipo)
                 .collect(Collectors.toList());
     }
@@ -124,7 +287,7 @@ public class VeiculoRepository {
      * Conta o total de veículos que atendem a um filtro.
      */
     public long contarComFiltro(Predicate<Veiculo> filtro) {
-        return veiculoList.stream()
+        return porSequencia.values().stream()
                 .filter(filtro)
                 .count();
     }
@@ -1,28 +1,40 @@
 package services;
 
-import java.math.BigDecimal;
+import functional.CalculadoraDesconto;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import model.Aluguel;
 import model.Cliente;
+import model.Dinheiro;
 import model.TipoVeiculo;
 import model.Veiculo;
 import repositories.AluguelRepository;
 import repositories.ClienteRepository;
+import repositories.UnidadeDeTrabalho;
 import repositories.VeiculoRepository;
+import utils.FaturamentoAgregado;
+import utils.Pagina;
+import utils.Ranking;
 
 public class AluguelService {
     private final AluguelRepository aluguelRepository;
     private final ClienteRepository clienteRepository;
     private final VeiculoRepository veiculoRepository;
+    private final RegrasDesconto regrasDesconto;
 
     private static final Predicate<Aluguel> ALUGUEL_ATIVO = Aluguel::isAtivo;
     private static final Predicate<Aluguel> ALUGUEL_FINALIZADO = aluguel -> !aluguel.isAtivo();
@@ -34,71 +46,260 @@ public class AluguelService {
                     aluguel.getVeiculo().getNome(),
                     aluguel.isAtivo() ? "Ativo" : "Finalizado");
 
+    /**
+     * Usa as regras de desconto do arquivo padrão (RegrasDesconto.ARQUIVO_PADRAO).
+     */
     public AluguelService(AluguelRepository aluguelRepository,
                          ClienteRepository clienteRepository,
                          VeiculoRepository veiculoRepository) {
+        this(aluguelRepository, clienteRepository, veiculoRepository, new RegrasDesconto(RegrasDesconto.ARQUIVO_PADRAO));
+    }
+
+    public AluguelService(AluguelRepository aluguelRepository,
+                         ClienteRepository clienteRepository,
+                         VeiculoRepository veiculoRepository,
+                         RegrasDesconto regrasDesconto) {
         this.aluguelRepository = aluguelRepository;
         this.clienteRepository = clienteRepository;
         this.veiculoRepository = veiculoRepository;
+        this.regrasDesconto = regrasDesconto;
     }
 
+    /**
+     * Aluga o veículo ou lança IllegalArgumentException com o motivo da recusa.
+     */
     public Aluguel alugar(String documento, String placa, LocalDateTime retirada, String localRetirada) {
-        Optional<Cliente> clienteOpt = clienteRepository.listarTodos().stream()
-                .filter(c -> c.getDocumento().equals(documento))
-                .findFirst();
+        ResultadoAluguel resultado = tentarAlugar(documento, placa, retirada, localRetirada);
+        if (!resultado.isSucesso()) {
+            throw new IllegalArgumentException(resultado.getMensagem());
+        }
+        return resultado.getAluguel();
+    }
+
+    /**
+     * Tenta alugar o veículo. A disponibilidade é reservada com compare-and-set no próprio
+     * veículo, sem trava global: pedidos simultâneos para o mesmo carro têm um único vencedor,
+     * e pedidos para carros diferentes não disputam entre si.
+     */
+    public ResultadoAluguel tentarAlugar(String documento, String placa, LocalDateTime retirada, String localRetirada) {
+        Optional<Cliente> clienteOpt = clienteRepository.buscarPorDocumento(documento);
         if (clienteOpt.isEmpty()) {
-            throw new IllegalArgumentException("Cliente não encontrado");
+            return ResultadoAluguel.falha(ResultadoAluguel.Status.CLIENTE_NAO_ENCONTRADO);
         }
 
         // Buscar veículo
         Optional<Veiculo> veiculoOpt = veiculoRepository.buscarPorPlaca(placa);
         if (veiculoOpt.isEmpty()) {
-            throw new IllegalArgumentException("Veículo não encontrado");
+            return ResultadoAluguel.falha(ResultadoAluguel.Status.VEICULO_NAO_ENCONTRADO);
         }
 
         Veiculo veiculo = veiculoOpt.get();
-        if (!veiculo.isDisponivel()) {
-            throw new IllegalArgumentException("Veículo não está disponível");
+        if (!veiculo.reservar()) {
+            return ResultadoAluguel.falha(ResultadoAluguel.Status.VEICULO_INDISPONIVEL);
         }
 
         String id = UUID.randomUUID().toString();
         Aluguel aluguel = new Aluguel(id, clienteOpt.get(), veiculo, retirada, localRetirada);
+        // Veículo e aluguel num único registro do journal; se falhar, a reserva é desfeita
+        UnidadeDeTrabalho unidade = novaUnidade();
+        unidade.salvar(veiculo, veiculo::liberar);
+        unidade.registrar(aluguel, null);
+        unidade.confirmar();
 
-        veiculo.setDisponivel(false);
-        veiculoRepository.salvar(veiculo);
-
-        // Salvar aluguel
-        aluguelRepository.salvar(aluguel);
-        aluguelRepository.salvarEmArquivo();
-
-        return aluguel;
+        return ResultadoAluguel.sucesso(aluguel);
     }
 
-    public void devolver(String aluguelId, LocalDateTime devolucao, String localDevolucao) {
+    /**
+     * Devolve o aluguel ou lança IllegalArgumentException se ele não existir ou já estiver finalizado.
+     *
+     * @return o aluguel finalizado, que substitui no repositório a instância ativa
+     */
+    public Aluguel devolver(String aluguelId, LocalDateTime devolucao, String localDevolucao) {
         Optional<Aluguel> aluguelOpt = aluguelRepository.buscarPorId(aluguelId);
         if (aluguelOpt.isEmpty()) {
             throw new IllegalArgumentException("Aluguel não encontrado");
         }
 
         Aluguel aluguel = aluguelOpt.get();
-        if (!aluguel.isAtivo()) {
+        CalculadoraDesconto desconto = calcularDesconto(aluguel);
+        if (!aluguel.reservarDevolucao()) {
             throw new IllegalArgumentException("Aluguel já finalizado");
         }
 
-        aluguel.finalizar(devolucao, localDevolucao);
+        // A instância indexada não muda: a cópia finalizada só entra nos índices do repositório,
+        // sob a trava, depois de gravada no journal
+        Aluguel devolvido = aluguel.copiar();
+        devolvido.finalizar(devolucao, localDevolucao, desconto);
+
+        // O aluguel já referencia a instância canônica do veículo no repositório;
+        // o carro só fica livre depois que a devolução estiver gravada
+        Veiculo veiculo = aluguel.getVeiculo();
+        UnidadeDeTrabalho unidade = novaUnidade();
+        unidade.registrar(devolvido, aluguel::liberarDevolucao);
+        unidade.salvarAoConfirmar(veiculo, veiculo::liberar);
+        unidade.confirmar();
+        return devolvido;
+    }
+
+    /**
+     * Desconto pelas regras vigentes, para o tipo de cliente e de veículo, o mês da retirada
+     * e quantos aluguéis o cliente já fez.
+     */
+    private CalculadoraDesconto calcularDesconto(Aluguel aluguel) {
+        return regrasDesconto.calculadora(aluguel,
+                aluguelRepository.contarPorCliente(aluguel.getCliente().getDocumento()));
+    }
+
+    private UnidadeDeTrabalho novaUnidade() {
+        return new UnidadeDeTrabalho(aluguelRepository, veiculoRepository);
+    }
+
+    /**
+     * Aluga vários veículos para o mesmo cliente, tudo ou nada.
+     * Todos os itens são validados e reservados antes de qualquer gravação; se algum for recusado,
+     * as reservas feitas são desfeitas e os demais itens voltam como LOTE_CANCELADO.
+     * Aceito o lote, veículos e aluguéis são confirmados numa única unidade de trabalho
+     * (um registro no journal, uma escrita, um fsync).
+     *
+     * @return um resultado por placa, na ordem recebida
+     */
+    public List<ResultadoAluguel> alugarEmLote(String documento, List<String> placas,
+                                               LocalDateTime retirada, String localRetirada) {
+        ResultadoAluguel[] resultados = new ResultadoAluguel[placas.size()];
+        Optional<Cliente> clienteOpt = clienteRepository.buscarPorDocumento(documento);
+        if (clienteOpt.isEmpty()) {
+            Arrays.fill(resultados, ResultadoAluguel.falha(ResultadoAluguel.Status.CLIENTE_NAO_ENCONTRADO));
+            return List.of(resultados);
+        }
+
+        Veiculo[] veiculos = new Veiculo[placas.size()];
+        Set<String> vistas = new HashSet<>();
+        boolean recusado = false;
+        for (int i = 0; i < placas.size(); i++) {
+            String placa = placas.get(i);
+            if (!vistas.add(placa)) {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.ITEM_REPETIDO);
+                recusado = true;
+                continue;
+            }
+            Optional<Veiculo> veiculoOpt = veiculoRepository.buscarPorPlaca(placa);
+            if (veiculoOpt.isEmpty()) {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.VEICULO_NAO_ENCONTRADO);
+                recusado = true;
+                continue;
+            }
+            veiculos[i] = veiculoOpt.get();
+        }
 
-        // Buscar o veículo atual na lista em memória para manter referência
-        String placaVeiculo = aluguel.getVeiculo().getPlaca();
-        Optional<Veiculo> veiculoAtualOpt = veiculoRepository.buscarPorPlaca(placaVeiculo);
-        if (veiculoAtualOpt.isPresent()) {
-            Veiculo veiculoAtual = veiculoAtualOpt.get();
-            veiculoAtual.setDisponivel(true);
-            veiculoRepository.salvar(veiculoAtual);
+        // Reserva todos os encontrados, para informar de uma vez cada veículo indisponível
+        List<Veiculo> reservados = new ArrayList<>();
+        for (int i = 0; i < veiculos.length; i++) {
+            if (veiculos[i] == null) {
+                continue;
+            }
+            if (veiculos[i].reservar()) {
+                reservados.add(veiculos[i]);
+            } else {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.VEICULO_INDISPONIVEL);
+                recusado = true;
+            }
+        }
+        if (recusado) {
+            reservados.forEach(Veiculo::liberar);
+            return cancelarRestantes(resultados);
         }
 
-        // Atualizar aluguel
-        aluguelRepository.salvar(aluguel);
-        aluguelRepository.salvarEmArquivo();
+        List<Aluguel> alugueis = new ArrayList<>(veiculos.length);
+        UnidadeDeTrabalho unidade = novaUnidade();
+        for (Veiculo veiculo : veiculos) {
+            Aluguel aluguel = new Aluguel(UUID.randomUUID().toString(), clienteOpt.get(), veiculo, retirada, localRetirada);
+            alugueis.add(aluguel);
+            unidade.salvar(veiculo, veiculo::liberar);
+            unidade.registrar(aluguel, null);
+        }
+        unidade.confirmar();
+
+        return alugueis.stream().map(ResultadoAluguel::sucesso).toList();
+    }
+
+    /**
+     * Devolve vários aluguéis de uma vez, tudo ou nada, com uma única gravação no journal.
+     * Se algum ID não existir, se repetir, já estiver finalizado ou estiver sendo devolvido por
+     * outra operação, nenhum aluguel é devolvido.
+     *
+     * @return um resultado por ID, na ordem recebida
+     */
+    public List<ResultadoAluguel> devolverEmLote(List<String> aluguelIds, LocalDateTime devolucao, String localDevolucao) {
+        ResultadoAluguel[] resultados = new ResultadoAluguel[aluguelIds.size()];
+        Aluguel[] alugueis = new Aluguel[aluguelIds.size()];
+        CalculadoraDesconto[] descontos = new CalculadoraDesconto[aluguelIds.size()];
+        Set<String> vistos = new HashSet<>();
+        boolean recusado = false;
+        for (int i = 0; i < aluguelIds.size(); i++) {
+            String id = aluguelIds.get(i);
+            if (!vistos.add(id)) {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.ITEM_REPETIDO);
+                recusado = true;
+                continue;
+            }
+            Optional<Aluguel> aluguelOpt = aluguelRepository.buscarPorId(id);
+            if (aluguelOpt.isEmpty()) {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.ALUGUEL_NAO_ENCONTRADO);
+                recusado = true;
+                continue;
+            }
+            alugueis[i] = aluguelOpt.get();
+            descontos[i] = calcularDesconto(alugueis[i]);
+        }
+
+        // reservarDevolucao() decide entre devoluções simultâneas do mesmo aluguel. Reserva todos
+        // os encontrados, para informar de uma vez cada aluguel já finalizado ou com outra
+        // devolução em andamento: todo ID recebe exatamente um resultado
+        List<Integer> reservados = new ArrayList<>();
+        for (int i = 0; i < alugueis.length; i++) {
+            if (alugueis[i] == null) {
+                continue;
+            }
+            if (alugueis[i].reservarDevolucao()) {
+                reservados.add(i);
+            } else {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.ALUGUEL_FINALIZADO);
+                recusado = true;
+            }
+        }
+        if (recusado) {
+            reservados.forEach(i -> alugueis[i].liberarDevolucao());
+            return cancelarRestantes(resultados);
+        }
+
+        // Como em devolver(): as cópias finalizadas só entram nos índices depois de gravadas
+        List<Aluguel> finalizados = new ArrayList<>(reservados.size());
+        UnidadeDeTrabalho unidade = novaUnidade();
+        for (int i : reservados) {
+            Aluguel aluguel = alugueis[i];
+            Aluguel devolvido = aluguel.copiar();
+            devolvido.finalizar(devolucao, localDevolucao, descontos[i]);
+            finalizados.add(devolvido);
+            Veiculo veiculo = aluguel.getVeiculo();
+            unidade.registrar(devolvido, aluguel::liberarDevolucao);
+            unidade.salvarAoConfirmar(veiculo, veiculo::liberar);
+        }
+        unidade.confirmar();
+
+        return finalizados.stream().map(ResultadoAluguel::sucesso).toList();
+    }
+
+    private static List<ResultadoAluguel> cancelarRestantes(ResultadoAluguel[] resultados) {
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i] == null) {
+                resultados[i] = ResultadoAluguel.falha(ResultadoAluguel.Status.LOTE_CANCELADO);
+            }
+        }
+        return List.of(resultados);
+    }
+
+    public Optional<Aluguel> buscarPorId(String id) {
+        return aluguelRepository.buscarPorId(id);
     }
 
     public List<Aluguel> listarAtivos() {
@@ -112,6 +313,13 @@ public class AluguelService {
         return aluguelRepository.listarComPaginacao(pagina, tamanhoPagina);
     }
 
+    /**
+     * Paginação por cursor (retiradas mais recentes primeiro).
+     */
+    public Pagina<Aluguel> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return aluguelRepository.listarAPartirDe(cursor, tamanhoPagina);
+    }
+
     /**
      * Busca aluguéis usando Predicate personalizado.
      */
@@ -138,6 +346,41 @@ public class AluguelService {
         return aluguelRepository.buscarFinalizados();
     }
 
+    /**
+     * Versão de todos os dados (aluguéis, veículos e clientes): a soma de contadores que só crescem,
+     * então muda sempre que qualquer repositório é alterado. Usada para saber se um relatório
+     * já gerado ainda vale.
+     */
+    public long getVersaoDados() {
+        return aluguelRepository.getVersao() + veiculoRepository.getVersao() + clienteRepository.getVersao();
+    }
+
+    /**
+     * Executa várias leituras como se fossem uma só, sem aluguéis gravados no meio.
+     */
+    public <T> T lerConsistente(Supplier<T> leitura) {
+        return aluguelRepository.lerConsistente(leitura);
+    }
+
+    /**
+     * Os últimos aluguéis finalizados, da devolução mais recente para a mais antiga.
+     */
+    public List<Aluguel> listarUltimosFinalizados(int limite) {
+        return aluguelRepository.buscarFinalizadosComPaginacao(0, limite);
+    }
+
+    public int contarAlugueis() {
+        return aluguelRepository.contarTodos();
+    }
+
+    public int contarAtivos() {
+        return aluguelRepository.contarAtivos();
+    }
+
+    public long contarFinalizados() {
+        return aluguelRepository.contarFinalizados();
+    }
+
     /**
      * Busca aluguéis por período.
      */
@@ -164,14 +407,14 @@ public class AluguelService {
     /**
      * Calcula faturamento total.
      */
-    public BigDecimal calcularFaturamentoTotal() {
+    public Dinheiro calcularFaturamentoTotal() {
         return aluguelRepository.calcularFaturamentoTotal();
     }
 
     /**
      * Calcula faturamento por período.
      */
-    public BigDecimal calcularFaturamentoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+    public Dinheiro calcularFaturamentoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
         return aluguelRepository.calcularFaturamentoPorPeriodo(inicio, fim);
     }
 
@@ -184,42 +427,59 @@ public class AluguelService {
     }
 
     /**
-     * Encontra os veículos mais alugados (retorna lista ordenada).
+     * Os veículos mais alugados, em ordem de posição (top-K sobre contadores por veículo).
      */
-    public List<Map.Entry<String, Long>> obterVeiculosMaisAlugados() {
-        return aluguelRepository.listarTodos().stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getVeiculo().getPlaca() + " - " + a.getVeiculo().getNome(),
-                        Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .collect(Collectors.toList());
+    public List<Ranking.Posicao<Veiculo>> obterVeiculosMaisAlugados(int limite) {
+        return aluguelRepository.buscarVeiculosMaisAlugados(limite);
     }
 
     /**
-     * Encontra os clientes que mais alugaram (retorna lista ordenada).
+     * Os clientes que mais alugaram, em ordem de posição (top-K sobre contadores por cliente).
      */
-    public List<Map.Entry<String, Long>> obterClientesQueMaisAlugaram() {
-        return aluguelRepository.listarTodos().stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getCliente().getDocumento() + " - " + a.getCliente().getNome(),
-                        Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .collect(Collectors.toList());
+    public List<Ranking.Posicao<Cliente>> obterClientesQueMaisAlugaram(int limite) {
+        return aluguelRepository.buscarClientesQueMaisAlugaram(limite);
+    }
+
+    /**
+     * Quantidade de veículos que já foram alugados.
+     */
+    public int contarVeiculosAlugados() {
+        return aluguelRepository.contarVeiculosAlugados();
+    }
+
+    /**
+     * Quantidade de clientes que já alugaram.
+     */
+    public int contarClientesQueAlugaram() {
+        return aluguelRepository.contarClientesQueAlugaram();
     }
 
     /**
      * Calcula faturamento total por tipo de veículo.
      */
-    public Map<TipoVeiculo, BigDecimal> calcularFaturamentoPorTipo() {
-        return aluguelRepository.buscarFinalizados().stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getVeiculo().getTipo(),
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                Aluguel::getValorTotal,
-                                BigDecimal::add)));
+    public Map<TipoVeiculo, Dinheiro> calcularFaturamentoPorTipo() {
+        return aluguelRepository.calcularFaturamentoPorTipo();
+    }
+
+    /**
+     * Faturamento por tipo de cliente ("PF"/"PJ").
+     */
+    public Map<String, Dinheiro> calcularFaturamentoPorTipoCliente() {
+        return aluguelRepository.calcularFaturamentoPorTipoCliente();
+    }
+
+    /**
+     * Faturamento por dia de devolução entre as datas (inclusive).
+     */
+    public Map<LocalDate, Dinheiro> calcularFaturamentoPorDia(LocalDate inicio, LocalDate fim) {
+        return aluguelRepository.calcularFaturamentoPorDia(inicio, fim);
+    }
+
+    /**
+     * Quantidade, total e totais por tipo das devoluções no período, a partir dos agregados.
+     */
+    public FaturamentoAgregado.Resumo resumirFaturamento(LocalDateTime inicio, LocalDateTime fim) {
+        return aluguelRepository.resumirFaturamento(inicio, fim);
     }
 
     /**
@@ -233,9 +493,16 @@ public class AluguelService {
     /**
      * Busca um aluguel pelo prefixo do ID (primeiros caracteres do UUID).
      * Permite que o usuário digite apenas parte do ID exibido no menu.
+     * Lança IllegalArgumentException se o prefixo corresponder a mais de um aluguel.
      */
     public Optional<Aluguel> buscarPorPrefixo(String prefixo) {
         return aluguelRepository.buscarPorPrefixo(prefixo);
     }
-}
 
+    /**
+     * Lista todos os aluguéis cujo ID começa com o prefixo informado.
+     */
+    public List<Aluguel> buscarTodosPorPrefixo(String prefixo) {
+        return aluguelRepository.buscarTodosPorPrefixo(prefixo);
+    }
+}
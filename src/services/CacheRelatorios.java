@@ -0,0 +1,108 @@
+package services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Relatórios já gerados, com os parâmetros e a versão dos dados de que vieram
+ * (AluguelService.getVersaoDados()). Um pedido com os mesmos parâmetros e sem alteração
+ * nos dados reaproveita o arquivo existente em vez de gerá-lo de novo.
+ *
+ * A versão global só serve aos relatórios agregados: qualquer aluguel a muda. Arquivos que
+ * dependem de poucos aluguéis (os recibos) levam o estado desses aluguéis nos parâmetros
+ * e são gerados sem versão.
+ *
+ * A chave é o arquivo, não o pedido: pedidos diferentes podem gravar o mesmo arquivo
+ * (o de faturamento, por exemplo, só leva as datas no nome). A geração de cada arquivo é
+ * serializada, para a versão registrada ser sempre a do conteúdo gravado. Um arquivo apagado
+ * ou alterado por fora (data de modificação diferente) deixa de valer.
+ */
+class CacheRelatorios {
+    // Com versão 0, a entrada vale enquanto os parâmetros forem os mesmos
+    private static final long SEM_VERSAO = 0;
+
+    private final Map<Path, Entrada> entradas = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    interface Escrita {
+        void escrever() throws IOException;
+    }
+
+    /**
+     * Gera o arquivo, a menos que ele já tenha sido gerado com os mesmos parâmetros a partir
+     * desta versão dos dados (ou de uma mais nova).
+     *
+     * @param versao versão dos dados, lida antes dos dados usados pela geração
+     * @return true se o arquivo foi gerado; false se o existente foi reaproveitado
+     */
+    boolean gerarSeNecessario(Path arquivo, String parametros, long versao, Escrita escrita) throws IOException {
+        Entrada entrada = entradas.computeIfAbsent(chave(arquivo), k -> new Entrada());
+        entrada.trava.lock();
+        try {
+            if (entrada.valePara(arquivo, parametros, versao)) {
+                return false;
+            }
+            entrada.parametros = null;
+            escrita.escrever();
+            entrada.parametros = parametros;
+            entrada.versao = versao;
+            entrada.modificadoEm = Files.getLastModifiedTime(arquivo);
+            return true;
+        } finally {
+            entrada.trava.unlock();
+        }
+    }
+
+    /**
+     * Gera o arquivo, a menos que ele já tenha sido gerado com os mesmos parâmetros. Para arquivos
+     * cujos parâmetros já descrevem todo o estado dos dados usados, sem depender da versão global.
+     *
+     * @return true se o arquivo foi gerado; false se o existente foi reaproveitado
+     */
+    boolean gerarSeNecessario(Path arquivo, String parametros, Escrita escrita) throws IOException {
+        return gerarSeNecessario(arquivo, parametros, SEM_VERSAO, escrita);
+    }
+
+    /**
+     * Consulta sem esperar: false também se o arquivo estiver sendo gerado neste momento.
+     */
+    boolean estaAtualizado(Path arquivo, String parametros, long versao) {
+        Entrada entrada = entradas.get(chave(arquivo));
+        if (entrada == null || !entrada.trava.tryLock()) {
+            return false;
+        }
+        try {
+            return entrada.valePara(arquivo, parametros, versao);
+        } finally {
+            entrada.trava.unlock();
+        }
+    }
+
+    private static Path chave(Path arquivo) {
+        return arquivo.toAbsolutePath().normalize();
+    }
+
+    private static final class Entrada {
+        private final ReentrantLock trava = new ReentrantLock();
+        private String parametros;
+        private long versao;
+        private FileTime modificadoEm;
+
+        private boolean valePara(Path arquivo, String parametros, long versao) {
+            if (!Objects.equals(this.parametros, parametros) || this.versao < versao) {
+                return false;
+            }
+            try {
+                return Files.getLastModifiedTime(arquivo).equals(modificadoEm);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
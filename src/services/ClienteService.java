@@ -4,10 +4,12 @@ import functional.TipoClienteStrategy;
 import functional.ValidadorDocumento;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import model.Cliente;
 import repositories.ClienteRepository;
+import utils.Pagina;
 
 public class ClienteService {
     private final ClienteRepository repository;
@@ -46,12 +48,16 @@ public class ClienteService {
             throw new IllegalArgumentException("CNPJ deve conter apenas 14 numeros, e nada de letras");
         }
 
-        if (repository.buscarPorDocumento(cliente.getDocumento()).isPresent()) {
+        if (!repository.salvarSeAusente(cliente)) {
             throw new IllegalArgumentException("Já existe um cliente com este CPF/CNPJ cadastrado");
         }
+    }
 
-        repository.salvar(cliente);
-        repository.salvarEmArquivo();
+    public Optional<Cliente> buscarPorDocumento(String documento) {
+        if (documento == null || documento.trim().isEmpty()) {
+            throw new IllegalArgumentException("Documento é obrigatório");
+        }
+        return repository.buscarPorDocumento(documento);
     }
 
     public List<Cliente> buscarPorNome(String nome) {
@@ -66,6 +72,13 @@ public class ClienteService {
         return repository.listarComPaginacao(pagina, tamanhoPagina);
     }
 
+    /**
+     * Paginação por cursor: passe null para a primeira página e depois o cursor retornado.
+     */
+    public Pagina<Cliente> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return repository.listarAPartirDe(cursor, tamanhoPagina);
+    }
+
     public List<Cliente> buscarComFiltro(Predicate<Cliente> filtro) {
         return repository.buscarComFiltro(filtro);
     }
@@ -0,0 +1,133 @@
+package services;
+
+import functional.CalculadoraDesconto;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import model.Aluguel;
+import utils.TabelaDescontos;
+
+/**
+ * Regras de desconto lidas de um arquivo texto (formato descrito em TabelaDescontos)
+ * e compiladas numa tabela de decisão.
+ *
+ * O arquivo é relido quando muda, sem reiniciar: a data de modificação é conferida no máximo
+ * uma vez por segundo, no próprio cálculo, por uma thread de cada vez; as demais seguem com a
+ * tabela atual, que é trocada de uma vez. Um arquivo inválido é informado e a tabela anterior
+ * continua valendo. Sem o arquivo, ele é criado com as regras padrão (os descontos de
+ * PessoaFisica e PessoaJuridica), para servir de modelo.
+ */
+public class RegrasDesconto {
+    public static final String ARQUIVO_PADRAO = "descontos.txt";
+
+    static final List<String> REGRAS_PADRAO = List.of(
+            "# Regras de desconto: uma por linha; vale o maior desconto entre as que se aplicam.",
+            "# Condições (omitida = qualquer): cliente=PF|PJ  veiculo=PEQUENO,MEDIO,SUV  dias>n ou dias>=n",
+            "#   meses=1-12 (mês da retirada; listas e faixas, ex.: 12-2,7)  alugueis>=n (do cliente, contando o atual)",
+            "cliente=PF dias>5 desconto=5%",
+            "cliente=PJ dias>3 desconto=10%");
+
+    private static final long INTERVALO_VERIFICACAO = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path arquivo;
+    private final ReentrantLock recarga = new ReentrantLock();
+    private volatile TabelaDescontos tabela = TabelaDescontos.VAZIA;
+    private volatile long proximaVerificacao;
+    private FileTime modificadoEm;
+
+    public RegrasDesconto(String arquivo) {
+        this.arquivo = Paths.get(arquivo);
+        criarArquivoPadrao();
+        // carregar(), e não recarregar(): um método que pode ser sobrescrito não roda no construtor
+        recarga.lock();
+        try {
+            proximaVerificacao = System.nanoTime() + INTERVALO_VERIFICACAO;
+            carregar();
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    private void criarArquivoPadrao() {
+        try {
+            if (!Files.exists(arquivo)) {
+                Files.write(arquivo, REGRAS_PADRAO, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao criar " + arquivo + ": " + e.getMessage());
+            tabela = TabelaDescontos.compilar(REGRAS_PADRAO);
+        }
+    }
+
+    /**
+     * Desconto por dias para o aluguel, pelas regras atuais.
+     *
+     * @param alugueisDoCliente aluguéis do cliente, contando este
+     */
+    public CalculadoraDesconto calculadora(Aluguel aluguel, long alugueisDoCliente) {
+        if (System.nanoTime() - proximaVerificacao >= 0) {
+            verificarAlteracao();
+        }
+        return tabela.calculadora(aluguel.getCliente(), aluguel.getVeiculo().getTipo(),
+                aluguel.getDataHoraRetirada().getMonthValue(), alugueisDoCliente);
+    }
+
+    private void verificarAlteracao() {
+        if (!recarga.tryLock()) {
+            return;
+        }
+        try {
+            proximaVerificacao = System.nanoTime() + INTERVALO_VERIFICACAO;
+            if (!Files.getLastModifiedTime(arquivo).equals(modificadoEm)) {
+                carregar();
+            }
+        } catch (IOException e) {
+            // Arquivo removido ou inacessível: mantém as regras atuais
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    /**
+     * Relê o arquivo agora, sem esperar a próxima verificação.
+     *
+     * @return false se o arquivo não pôde ser lido ou tem regra inválida (as regras atuais continuam)
+     */
+    public boolean recarregar() {
+        recarga.lock();
+        try {
+            proximaVerificacao = System.nanoTime() + INTERVALO_VERIFICACAO;
+            return carregar();
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    private boolean carregar() {
+        try {
+            FileTime data = Files.getLastModifiedTime(arquivo);
+            List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+            // A data fica registrada mesmo com erro, para o mesmo arquivo inválido não ser relido
+            modificadoEm = data;
+            tabela = TabelaDescontos.compilar(linhas);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Regras de desconto em " + arquivo + " não carregadas (" + e.getMessage()
+                    + "); mantidas as regras anteriores.");
+            return false;
+        }
+    }
+
+    public int getQuantidadeRegras() {
+        return tabela.getQuantidadeRegras();
+    }
+}
@@ -1,55 +1,192 @@
 package services;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import functional.FormatadorRelatorio;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import model.Aluguel;
 import model.Cliente;
+import model.Dinheiro;
 import model.TipoVeiculo;
 import model.Veiculo;
+import utils.FaturamentoAgregado;
+import utils.ModeloRelatorio;
+import utils.Ranking;
+import utils.SaidaRelatorio;
 
 /**
- * Service para geração de relatórios utilizando Files, InputStream e OutputStream.
- * Implementa relatórios usando Streams e arquivos conforme especificado no Refact.md:
+ * Service para geração de relatórios em arquivos texto.
+ * Implementa os relatórios especificados no Refact.md:
  * - Faturamento total por período
  * - Veículos mais alugados
  * - Clientes que mais alugaram
  * - Recibos de aluguel e devolução
+ *
+ * Linhas e recibos são modelos compilados uma vez (ModeloRelatorio) e escritos em streaming
+ * no canal do arquivo (SaidaRelatorio), sem montar o relatório em memória.
+ * gerarTodosRelatorios() gera os relatórios gerais em paralelo, em segundo plano.
+ *
+ * Um relatório pedido de novo com os mesmos parâmetros, sem alteração nos dados desde que foi
+ * gerado, não é gerado outra vez: o arquivo existente é reaproveitado (CacheRelatorios).
  */
 public class RelatorioService {
     private final AluguelService aluguelService;
     private final ClienteService clienteService;
     private final VeiculoService veiculoService;
+    private final Executor executor;
+    private final CacheRelatorios cache = new CacheRelatorios();
+
+    // Uma virtual thread por relatório: a geração é quase toda escrita em arquivo
+    private static final Executor THREADS_VIRTUAIS = Thread::startVirtualThread;
+    private static final int TAMANHO_RANKING = 10;
+    private static final int ULTIMOS_FINALIZADOS = 20;
+    // Recibos renderizados em paralelo de cada vez, antes de irem para o ZIP
+    private static final int RECIBOS_POR_LOTE = 1024;
+    private static final int TAMANHO_BUFFER_ZIP = 1 << 16;
 
     private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final DateTimeFormatter FORMATO_DIA_ARQUIVO = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String DIRETORIO_RELATORIOS = "relatorios";
-
-    // Formatadores usando interface funcional personalizada
-    private static final FormatadorRelatorio<Aluguel> FORMATADOR_ALUGUEL = aluguel ->
-            String.format("ID: %s | Cliente: %s | Veículo: %s - %s | Retirada: %s | Status: %s",
-                    aluguel.getId().substring(0, 8),
-                    aluguel.getCliente().getNome(),
-                    aluguel.getVeiculo().getPlaca(),
-                    aluguel.getVeiculo().getNome(),
-                    aluguel.getDataHoraRetirada().format(FORMATO_DATA),
-                    aluguel.isAtivo() ? "Ativo" : "Finalizado");
+    private static final Path ARQUIVO_VEICULOS_MAIS_ALUGADOS =
+            Paths.get(String.format("%s/veiculos_mais_alugados.txt", DIRETORIO_RELATORIOS));
+    private static final Path ARQUIVO_CLIENTES_QUE_MAIS_ALUGARAM =
+            Paths.get(String.format("%s/clientes_que_mais_alugaram.txt", DIRETORIO_RELATORIOS));
+    private static final Path ARQUIVO_RELATORIO_COMPLETO =
+            Paths.get(String.format("%s/relatorio_completo_alugueis.txt", DIRETORIO_RELATORIOS));
+    // Parâmetros no cache dos relatórios que não dependem do pedido
+    private static final String SEM_PARAMETROS = "";
+    private static final int LARGURA = 80;
+    private static final String LINHA_DUPLA = "=".repeat(LARGURA);
+    private static final String LINHA_SIMPLES = "-".repeat(LARGURA);
+
+    // Formatadores usando interface funcional personalizada (ModeloRelatorio é um FormatadorRelatorio)
+    private static final ModeloRelatorio<Aluguel> FORMATADOR_ALUGUEL = ModeloRelatorio.<Aluguel>de(
+            "ID: {id} | Cliente: {cliente} | Veículo: {placa} - {veiculo} | Retirada: {retirada} | Status: {status}")
+            .texto("id", aluguel -> aluguel.getId().substring(0, 8))
+            .texto("cliente", aluguel -> aluguel.getCliente().getNome())
+            .texto("placa", aluguel -> aluguel.getVeiculo().getPlaca())
+            .texto("veiculo", aluguel -> aluguel.getVeiculo().getNome())
+            .dataHora("retirada", FORMATO_DATA, Aluguel::getDataHoraRetirada)
+            .texto("status", aluguel -> aluguel.isAtivo() ? "Ativo" : "Finalizado")
+            .compilar();
+
+    private static final ModeloRelatorio<Aluguel> COMPLEMENTO_FINALIZADO = ModeloRelatorio.<Aluguel>de(
+            " | Devolução: {devolucao} | Valor: R$ {valor}")
+            .dataHora("devolucao", FORMATO_DATA, Aluguel::getDataHoraDevolucao)
+            .dinheiro("valor", Aluguel::getValor)
+            .compilar();
+
+    private static final ModeloRelatorio<Map.Entry<TipoVeiculo, Dinheiro>> LINHA_FATURAMENTO_TIPO =
+            ModeloRelatorio.<Map.Entry<TipoVeiculo, Dinheiro>>de("  {tipo}: R$ {valor}\n")
+                    .texto("tipo", Map.Entry::getKey)
+                    .dinheiro("valor", Map.Entry::getValue)
+                    .compilar();
+
+    private static final ModeloRelatorio<Ranking.Posicao<Veiculo>> LINHA_RANKING_VEICULO =
+            linhaRanking(veiculo -> veiculo.getPlaca() + " - " + veiculo.getNome());
+
+    private static final ModeloRelatorio<Ranking.Posicao<Cliente>> LINHA_RANKING_CLIENTE =
+            linhaRanking(cliente -> cliente.getDocumento() + " - " + cliente.getNome());
+
+    private static final ModeloRelatorio<Aluguel> RECIBO_ALUGUEL = ModeloRelatorio.<Aluguel>de(
+            LINHA_DUPLA + "\n"
+            + "ADA LOCATECAR - RECIBO DE ALUGUEL\n"
+            + LINHA_DUPLA + "\n\n"
+            + "ID do Aluguel: {id}\n"
+            + "Data/Hora: {retirada}\n\n"
+            + "DADOS DO CLIENTE:\n" + LINHA_SIMPLES + "\n"
+            + "Nome: {nome}\n"
+            + "Documento: {documento}\n\n"
+            + "DADOS DO VEÍCULO:\n" + LINHA_SIMPLES + "\n"
+            + "Placa: {placa}\n"
+            + "Modelo: {modelo}\n"
+            + "Categoria: {categoria}\n\n"
+            + "DADOS DO ALUGUEL:\n" + LINHA_SIMPLES + "\n"
+            + "Local de Retirada: {localRetirada}\n"
+            + "Status: {status}\n\n")
+            .texto("id", Aluguel::getId)
+            .dataHora("retirada", FORMATO_DATA, Aluguel::getDataHoraRetirada)
+            .texto("nome", aluguel -> aluguel.getCliente().getNome())
+            .texto("documento", aluguel -> aluguel.getCliente().getDocumento())
+            .texto("placa", aluguel -> aluguel.getVeiculo().getPlaca())
+            .texto("modelo", aluguel -> aluguel.getVeiculo().getNome())
+            .texto("categoria", aluguel -> aluguel.getVeiculo().getTipo())
+            .texto("localRetirada", Aluguel::getLocalRetirada)
+            .texto("status", aluguel -> aluguel.isAtivo() ? "ATIVO" : "FINALIZADO")
+            .compilar();
+
+    private static final ModeloRelatorio<Aluguel> RECIBO_DEVOLUCAO = ModeloRelatorio.<Aluguel>de(
+            LINHA_DUPLA + "\n"
+            + "ADA LOCATECAR - RECIBO DE DEVOLUÇÃO\n"
+            + LINHA_DUPLA + "\n\n"
+            + "ID do Aluguel: {id}\n\n"
+            + "DADOS DO CLIENTE:\n" + LINHA_SIMPLES + "\n"
+            + "Nome: {nome}\n"
+            + "Documento: {documento}\n\n"
+            + "DADOS DO VEÍCULO:\n" + LINHA_SIMPLES + "\n"
+            + "Placa: {placa}\n"
+            + "Modelo: {modelo}\n"
+            + "Categoria: {categoria}\n\n"
+            + "DADOS DA LOCAÇÃO:\n" + LINHA_SIMPLES + "\n"
+            + "Retirada: {retirada}\n"
+            + "Local de Retirada: {localRetirada}\n"
+            + "Devolução: {devolucao}\n"
+            + "Local de Devolução: {localDevolucao}\n\n"
+            + "VALORES:\n" + LINHA_SIMPLES + "\n"
+            + "Valor Total: R$ {valor}\n\n")
+            .texto("id", Aluguel::getId)
+            .texto("nome", aluguel -> aluguel.getCliente().getNome())
+            .texto("documento", aluguel -> aluguel.getCliente().getDocumento())
+            .texto("placa", aluguel -> aluguel.getVeiculo().getPlaca())
+            .texto("modelo", aluguel -> aluguel.getVeiculo().getNome())
+            .texto("categoria", aluguel -> aluguel.getVeiculo().getTipo())
+            .dataHora("retirada", FORMATO_DATA, Aluguel::getDataHoraRetirada)
+            .texto("localRetirada", Aluguel::getLocalRetirada)
+            .dataHora("devolucao", FORMATO_DATA, Aluguel::getDataHoraDevolucao)
+            .texto("localDevolucao", Aluguel::getLocalDevolucao)
+            .dinheiro("valor", Aluguel::getValor)
+            .compilar();
 
     public RelatorioService(AluguelService aluguelService,
                           ClienteService clienteService,
                           VeiculoService veiculoService) {
+        this(aluguelService, clienteService, veiculoService, THREADS_VIRTUAIS);
+    }
+
+    /**
+     * @param executor onde gerarTodosRelatorios() executa cada relatório
+     */
+    public RelatorioService(AluguelService aluguelService,
+                          ClienteService clienteService,
+                          VeiculoService veiculoService,
+                          Executor executor) {
         this.aluguelService = aluguelService;
         this.clienteService = clienteService;
         this.veiculoService = veiculoService;
+        this.executor = executor;
         criarDiretorioRelatorios();
     }
 
@@ -64,456 +201,495 @@ public class RelatorioService {
         }
     }
 
+    private static <T> ModeloRelatorio<Ranking.Posicao<T>> linhaRanking(Function<T, String> descricao) {
+        return ModeloRelatorio.<Ranking.Posicao<T>>de("{posicao:2}. {item:-50} {quantidade:3} aluguéis\n")
+                .inteiro("posicao", Ranking.Posicao::getPosicao)
+                .texto("item", posicao -> descricao.apply(posicao.getItem()))
+                .inteiro("quantidade", Ranking.Posicao::getQuantidade)
+                .compilar();
+    }
+
     /**
-     * Gera relatório de faturamento total por período.
-     * Usa Streams para filtrar e calcular, e Files para escrever.
+     * Gera relatório de faturamento total por período, a partir dos agregados diários.
      */
     public void gerarRelatorioFaturamentoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) throws IOException {
-        String nomeArquivo = String.format("%s/faturamento_%s_a_%s.txt",
+        Path arquivo = arquivoFaturamento(inicio, fim);
+        boolean gerado = cache.gerarSeNecessario(arquivo, parametrosPeriodo(inicio, fim), aluguelService.getVersaoDados(),
+                () -> escreverFaturamento(arquivo, inicio, fim, aluguelService.resumirFaturamento(inicio, fim)));
+        informar("Relatório de faturamento", arquivo, gerado);
+    }
+
+    private static Path arquivoFaturamento(LocalDateTime inicio, LocalDateTime fim) {
+        return Paths.get(String.format("%s/faturamento_%s_a_%s.txt",
                 DIRETORIO_RELATORIOS,
-                inicio.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-                fim.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-
-        Path path = Paths.get(nomeArquivo);
-
-        // Usando BufferedWriter com Files para escrita eficiente
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("RELATÓRIO DE FATURAMENTO POR PERÍODO");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write(String.format("Período: %s a %s",
-                    inicio.format(FORMATO_DATA),
-                    fim.format(FORMATO_DATA)));
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            // Buscar aluguéis do período usando Streams
-            List<Aluguel> alugueisPeriodo = aluguelService.buscarPorPeriodo(inicio, fim);
-
-            // Calcular faturamento total
-            BigDecimal faturamentoTotal = alugueisPeriodo.stream()
-                    .map(Aluguel::getValorTotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Agrupar por tipo de veículo
-            Map<TipoVeiculo, BigDecimal> faturamentoPorTipo = alugueisPeriodo.stream()
-                    .collect(Collectors.groupingBy(
-                            a -> a.getVeiculo().getTipo(),
-                            Collectors.reducing(
-                                    BigDecimal.ZERO,
-                                    Aluguel::getValorTotal,
-                                    BigDecimal::add)));
-
-            writer.write(String.format("Total de aluguéis no período: %d", alugueisPeriodo.size()));
-            writer.newLine();
-            writer.write(String.format("Faturamento total: R$ %.2f", faturamentoTotal));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("FATURAMENTO POR TIPO DE VEÍCULO:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-
-            // Escrever faturamento por tipo usando Stream
-            faturamentoPorTipo.entrySet().stream()
-                    .sorted(Map.Entry.<TipoVeiculo, BigDecimal>comparingByValue().reversed())
-                    .forEach(entry -> {
-                        try {
-                            writer.write(String.format("  %s: R$ %.2f",
-                                    entry.getKey(),
-                                    entry.getValue()));
-                            writer.newLine();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Relatório gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
-        }
+                inicio.format(FORMATO_DIA_ARQUIVO),
+                fim.format(FORMATO_DIA_ARQUIVO)));
+    }
 
-        System.out.println("Relatório de faturamento gerado: " + nomeArquivo);
+    // O nome do arquivo só leva as datas; os horários também fazem parte do pedido
+    private static String parametrosPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        return inicio + "|" + fim;
+    }
+
+    private void escreverFaturamento(Path arquivo, LocalDateTime inicio, LocalDateTime fim,
+                                     FaturamentoAgregado.Resumo resumo) throws IOException {
+        try (SaidaRelatorio saida = SaidaRelatorio.abrir(arquivo)) {
+            escreverCabecalho(saida, "RELATÓRIO DE FATURAMENTO POR PERÍODO");
+            saida.append("Período: ").dataHora(inicio, FORMATO_DATA, 0)
+                    .append(" a ").dataHora(fim, FORMATO_DATA, 0).novaLinha();
+            saida.append(LINHA_SIMPLES).novaLinha();
+            saida.novaLinha();
+
+            saida.append("Total de aluguéis no período: ").inteiro(resumo.getQuantidade(), 0).novaLinha();
+            saida.append("Faturamento total: R$ ").dinheiro(resumo.getTotal(), 0).novaLinha();
+            saida.novaLinha();
+
+            escreverSecao(saida, "FATURAMENTO POR TIPO DE VEÍCULO:");
+            List<Map.Entry<TipoVeiculo, Dinheiro>> porTipo = resumo.getPorTipoVeiculo().entrySet().stream()
+                    .sorted(Map.Entry.<TipoVeiculo, Dinheiro>comparingByValue().reversed())
+                    .toList();
+            for (Map.Entry<TipoVeiculo, Dinheiro> tipo : porTipo) {
+                LINHA_FATURAMENTO_TIPO.escrever(saida, tipo);
+            }
+
+            saida.novaLinha();
+            escreverRodape(saida, "Relatório gerado em: ");
+        }
     }
 
     /**
-     * Gera relatório de veículos mais alugados.
-     * Usa Streams para agregação e Files para escrita.
+     * Gera relatório de veículos mais alugados (top 10 a partir dos contadores por veículo).
      */
     public void gerarRelatorioVeiculosMaisAlugados() throws IOException {
-        String nomeArquivo = String.format("%s/veiculos_mais_alugados.txt", DIRETORIO_RELATORIOS);
-        Path path = Paths.get(nomeArquivo);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("RELATÓRIO DE VEÍCULOS MAIS ALUGADOS");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            // Obter estatísticas usando Streams
-            List<Map.Entry<String, Long>> ranking = aluguelService.obterVeiculosMaisAlugados();
-
-            writer.write(String.format("Total de veículos no sistema: %d", veiculoService.listarTodos().size()));
-            writer.newLine();
-            writer.write(String.format("Veículos que já foram alugados: %d", ranking.size()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("RANKING:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-
-            // Escrever ranking usando Stream com índice
-            ranking.stream()
-                    .limit(10) // Top 10
-                    .forEach(entry -> {
-                        int posicao = ranking.indexOf(entry) + 1;
-                        try {
-                            writer.write(String.format("%2d. %-50s %3d aluguéis",
-                                    posicao,
-                                    entry.getKey(),
-                                    entry.getValue()));
-                            writer.newLine();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Relatório gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
-        }
+        boolean gerado = cache.gerarSeNecessario(ARQUIVO_VEICULOS_MAIS_ALUGADOS, SEM_PARAMETROS,
+                aluguelService.getVersaoDados(),
+                () -> escreverVeiculosMaisAlugados(veiculoService.listarTodos().size(),
+                        aluguelService.contarVeiculosAlugados(), aluguelService.obterVeiculosMaisAlugados(TAMANHO_RANKING)));
+        informar("Relatório de veículos mais alugados", ARQUIVO_VEICULOS_MAIS_ALUGADOS, gerado);
+    }
 
-        System.out.println("Relatório de veículos mais alugados gerado: " + nomeArquivo);
+    private void escreverVeiculosMaisAlugados(int totalVeiculos, int veiculosAlugados,
+                                              List<Ranking.Posicao<Veiculo>> ranking) throws IOException {
+        try (SaidaRelatorio saida = SaidaRelatorio.abrir(ARQUIVO_VEICULOS_MAIS_ALUGADOS)) {
+            escreverCabecalho(saida, "RELATÓRIO DE VEÍCULOS MAIS ALUGADOS");
+            saida.novaLinha();
+            saida.append("Total de veículos no sistema: ").inteiro(totalVeiculos, 0).novaLinha();
+            saida.append("Veículos que já foram alugados: ").inteiro(veiculosAlugados, 0).novaLinha();
+            saida.novaLinha();
+            escreverRanking(saida, ranking, LINHA_RANKING_VEICULO);
+        }
     }
 
     /**
-     * Gera relatório de clientes que mais alugaram.
-     * Usa Streams para agregação e Files para escrita.
+     * Gera relatório de clientes que mais alugaram (top 10 a partir dos contadores por cliente).
      */
     public void gerarRelatorioClientesQueMaisAlugaram() throws IOException {
-        String nomeArquivo = String.format("%s/clientes_que_mais_alugaram.txt", DIRETORIO_RELATORIOS);
-        Path path = Paths.get(nomeArquivo);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("RELATÓRIO DE CLIENTES QUE MAIS ALUGARAM");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            // Obter estatísticas usando Streams
-            List<Map.Entry<String, Long>> ranking = aluguelService.obterClientesQueMaisAlugaram();
-
-            writer.write(String.format("Total de clientes no sistema: %d", clienteService.listarTodos().size()));
-            writer.newLine();
-            writer.write(String.format("Clientes que já alugaram: %d", ranking.size()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("RANKING:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-
-            // Escrever ranking usando Stream
-            ranking.stream()
-                    .limit(10) // Top 10
-                    .forEach(entry -> {
-                        int posicao = ranking.indexOf(entry) + 1;
-                        try {
-                            writer.write(String.format("%2d. %-50s %3d aluguéis",
-                                    posicao,
-                                    entry.getKey(),
-                                    entry.getValue()));
-                            writer.newLine();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Relatório gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
+        boolean gerado = cache.gerarSeNecessario(ARQUIVO_CLIENTES_QUE_MAIS_ALUGARAM, SEM_PARAMETROS,
+                aluguelService.getVersaoDados(),
+                () -> escreverClientesQueMaisAlugaram(clienteService.listarTodos().size(),
+                        aluguelService.contarClientesQueAlugaram(), aluguelService.obterClientesQueMaisAlugaram(TAMANHO_RANKING)));
+        informar("Relatório de clientes que mais alugaram", ARQUIVO_CLIENTES_QUE_MAIS_ALUGARAM, gerado);
+    }
+
+    private void escreverClientesQueMaisAlugaram(int totalClientes, int clientesQueAlugaram,
+                                                 List<Ranking.Posicao<Cliente>> ranking) throws IOException {
+        try (SaidaRelatorio saida = SaidaRelatorio.abrir(ARQUIVO_CLIENTES_QUE_MAIS_ALUGARAM)) {
+            escreverCabecalho(saida, "RELATÓRIO DE CLIENTES QUE MAIS ALUGARAM");
+            saida.novaLinha();
+            saida.append("Total de clientes no sistema: ").inteiro(totalClientes, 0).novaLinha();
+            saida.append("Clientes que já alugaram: ").inteiro(clientesQueAlugaram, 0).novaLinha();
+            saida.novaLinha();
+            escreverRanking(saida, ranking, LINHA_RANKING_CLIENTE);
         }
+    }
 
-        System.out.println("Relatório de clientes que mais alugaram gerado: " + nomeArquivo);
+    private static <T> void escreverRanking(SaidaRelatorio saida, List<Ranking.Posicao<T>> ranking,
+                                            ModeloRelatorio<Ranking.Posicao<T>> linha) throws IOException {
+        escreverSecao(saida, "RANKING:");
+        // A posição vem do próprio ranking
+        for (Ranking.Posicao<T> posicao : ranking) {
+            linha.escrever(saida, posicao);
+        }
+        saida.novaLinha();
+        escreverRodape(saida, "Relatório gerado em: ");
     }
 
     /**
      * Gera recibo de aluguel.
-     * Usa Files para escrita de recibo formatado.
      */
     public void gerarReciboAluguel(String aluguelId) throws IOException {
-        Aluguel aluguel = aluguelService.listarTodos().stream()
-                .filter(a -> a.getId().equals(aluguelId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Aluguel não encontrado"));
+        Aluguel aluguel = aluguelService.buscarPorId(aluguelId)
+                .orElseThrow(() -> new IllegalArgumentException("Aluguel não encontrado"))
+                .copiar();
 
-        String nomeArquivo = String.format("%s/recibo_aluguel_%s.txt",
+        Path arquivo = Paths.get(String.format("%s/recibo_aluguel_%s.txt",
                 DIRETORIO_RELATORIOS,
-                aluguel.getId().substring(0, 8));
-
-        Path path = Paths.get(nomeArquivo);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("ADA LOCATECAR - RECIBO DE ALUGUEL");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write(String.format("ID do Aluguel: %s", aluguel.getId()));
-            writer.newLine();
-            writer.write(String.format("Data/Hora: %s", aluguel.getDataHoraRetirada().format(FORMATO_DATA)));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DO CLIENTE:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            Cliente cliente = aluguel.getCliente();
-            writer.write(String.format("Nome: %s", cliente.getNome()));
-            writer.newLine();
-            writer.write(String.format("Documento: %s", cliente.getDocumento()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DO VEÍCULO:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            Veiculo veiculo = aluguel.getVeiculo();
-            writer.write(String.format("Placa: %s", veiculo.getPlaca()));
-            writer.newLine();
-            writer.write(String.format("Modelo: %s", veiculo.getNome()));
-            writer.newLine();
-            writer.write(String.format("Categoria: %s", veiculo.getTipo()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DO ALUGUEL:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            writer.write(String.format("Local de Retirada: %s", aluguel.getLocalRetirada()));
-            writer.newLine();
-            writer.write(String.format("Status: %s", aluguel.isAtivo() ? "ATIVO" : "FINALIZADO"));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Recibo gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
-        }
+                aluguel.getId().substring(0, 8)));
+
+        // Os 8 caracteres do nome podem se repetir entre aluguéis: o ID completo vai no estado
+        boolean gerado = cache.gerarSeNecessario(arquivo, estadoRecibo(aluguel), () -> {
+            try (SaidaRelatorio saida = SaidaRelatorio.abrir(arquivo)) {
+                RECIBO_ALUGUEL.escrever(saida, aluguel);
+                escreverRodape(saida, "Recibo gerado em: ");
+            }
+        });
 
-        System.out.println("Recibo de aluguel gerado: " + nomeArquivo);
+        informar("Recibo de aluguel", arquivo, gerado);
     }
 
     /**
-     * Gera recibo de devolução.
-     * Usa Files para escrita de recibo com cálculo de valores.
+     * Gera recibo de devolução, com o valor total da locação.
      */
     public void gerarReciboDevolucao(String aluguelId) throws IOException {
-        Aluguel aluguel = aluguelService.listarTodos().stream()
-                .filter(a -> a.getId().equals(aluguelId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Aluguel não encontrado"));
+        Aluguel aluguel = aluguelService.buscarPorId(aluguelId)
+                .orElseThrow(() -> new IllegalArgumentException("Aluguel não encontrado"))
+                .copiar();
 
         if (aluguel.isAtivo()) {
             throw new IllegalArgumentException("Aluguel ainda está ativo. Não é possível gerar recibo de devolução.");
         }
 
-        String nomeArquivo = String.format("%s/recibo_devolucao_%s.txt",
+        Path arquivo = Paths.get(String.format("%s/recibo_devolucao_%s.txt",
                 DIRETORIO_RELATORIOS,
-                aluguel.getId().substring(0, 8));
-
-        Path path = Paths.get(nomeArquivo);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("ADA LOCATECAR - RECIBO DE DEVOLUÇÃO");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write(String.format("ID do Aluguel: %s", aluguel.getId()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DO CLIENTE:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            Cliente cliente = aluguel.getCliente();
-            writer.write(String.format("Nome: %s", cliente.getNome()));
-            writer.newLine();
-            writer.write(String.format("Documento: %s", cliente.getDocumento()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DO VEÍCULO:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            Veiculo veiculo = aluguel.getVeiculo();
-            writer.write(String.format("Placa: %s", veiculo.getPlaca()));
-            writer.newLine();
-            writer.write(String.format("Modelo: %s", veiculo.getNome()));
-            writer.newLine();
-            writer.write(String.format("Categoria: %s", veiculo.getTipo()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("DADOS DA LOCAÇÃO:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            writer.write(String.format("Retirada: %s", aluguel.getDataHoraRetirada().format(FORMATO_DATA)));
-            writer.newLine();
-            writer.write(String.format("Local de Retirada: %s", aluguel.getLocalRetirada()));
-            writer.newLine();
-            writer.write(String.format("Devolução: %s", aluguel.getDataHoraDevolucao().format(FORMATO_DATA)));
-            writer.newLine();
-            writer.write(String.format("Local de Devolução: %s", aluguel.getLocalDevolucao()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("VALORES:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-            writer.write(String.format("Valor Total: R$ %.2f", aluguel.getValorTotal()));
-            writer.newLine();
-            writer.newLine();
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Recibo gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
+                aluguel.getId().substring(0, 8)));
+
+        boolean gerado = cache.gerarSeNecessario(arquivo, estadoRecibo(aluguel), () -> {
+            try (SaidaRelatorio saida = SaidaRelatorio.abrir(arquivo)) {
+                RECIBO_DEVOLUCAO.escrever(saida, aluguel);
+                escreverRodape(saida, "Recibo gerado em: ");
+            }
+        });
+
+        informar("Recibo de devolução", arquivo, gerado);
+    }
+
+    /**
+     * Gera, num único arquivo ZIP, os recibos de devolução dos aluguéis devolvidos no período (inclusive),
+     * em ordem de devolução.
+     *
+     * @return o arquivo gerado
+     */
+    public Path gerarRecibosDevolucaoPorPeriodo(LocalDateTime inicio, LocalDateTime fim) throws IOException {
+        List<Aluguel> devolvidos = aluguelService.buscarPorPeriodo(inicio, fim);
+        if (devolvidos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum aluguel devolvido no período");
+        }
+
+        List<Recibo> recibos = new ArrayList<>(devolvidos.size());
+        for (Aluguel aluguel : devolvidos) {
+            recibos.add(new Recibo("recibo_devolucao_", RECIBO_DEVOLUCAO, aluguel.copiar()));
+        }
+
+        Path arquivo = Paths.get(String.format("%s/recibos_devolucao_%s_a_%s.zip",
+                DIRETORIO_RELATORIOS,
+                inicio.format(FORMATO_DIA_ARQUIVO),
+                fim.format(FORMATO_DIA_ARQUIVO)));
+        if (cache.gerarSeNecessario(arquivo, parametrosPeriodo(inicio, fim) + "|" + estadoRecibos(recibos),
+                () -> escreverRecibos(arquivo, recibos))) {
+            System.out.printf("%d recibos de devolução gerados: %s%n", recibos.size(), arquivo);
+        } else {
+            informar("Recibos de devolução", arquivo, false);
+        }
+        return arquivo;
+    }
+
+    /**
+     * Gera, num único arquivo ZIP, todos os recibos de um cliente: o de aluguel de cada locação
+     * e, das já devolvidas, também o de devolução.
+     *
+     * @return o arquivo gerado
+     */
+    public Path gerarRecibosPorCliente(String documento) throws IOException {
+        if (clienteService.buscarPorDocumento(documento).isEmpty()) {
+            throw new IllegalArgumentException("Cliente não encontrado");
+        }
+        List<Aluguel> alugueis = aluguelService.listarPorCliente(documento);
+        if (alugueis.isEmpty()) {
+            throw new IllegalArgumentException("Cliente sem aluguéis");
+        }
+
+        List<Recibo> recibos = new ArrayList<>(alugueis.size() * 2);
+        for (Aluguel aluguel : alugueis) {
+            Aluguel copia = aluguel.copiar();
+            recibos.add(new Recibo("recibo_aluguel_", RECIBO_ALUGUEL, copia));
+            if (!copia.isAtivo()) {
+                recibos.add(new Recibo("recibo_devolucao_", RECIBO_DEVOLUCAO, copia));
+            }
         }
 
-        System.out.println("Recibo de devolução gerado: " + nomeArquivo);
+        Path arquivo = Paths.get(String.format("%s/recibos_cliente_%s.zip", DIRETORIO_RELATORIOS, documento));
+        if (cache.gerarSeNecessario(arquivo, estadoRecibos(recibos), () -> escreverRecibos(arquivo, recibos))) {
+            System.out.printf("%d recibos do cliente gerados: %s%n", recibos.size(), arquivo);
+        } else {
+            informar("Recibos do cliente", arquivo, false);
+        }
+        return arquivo;
+    }
+
+    /**
+     * Estado do aluguel do qual os recibos dependem. Recibos vão para o cache por esse estado,
+     * e não pela versão global dos dados, que muda a cada aluguel registrado em qualquer cliente.
+     * Tem todos os campos de RECIBO_ALUGUEL e RECIBO_DEVOLUCAO: um campo novo num dos modelos
+     * precisa entrar aqui, ou o recibo em disco não mudaria com ele (ex.: a categoria do veículo,
+     * que pode ser alterada pela API).
+     */
+    private static String estadoRecibo(Aluguel aluguel) {
+        Cliente cliente = aluguel.getCliente();
+        Veiculo veiculo = aluguel.getVeiculo();
+        return aluguel.getId() + '|' + aluguel.isAtivo()
+                + '|' + aluguel.getDataHoraRetirada() + '|' + aluguel.getLocalRetirada()
+                + '|' + aluguel.getDataHoraDevolucao() + '|' + aluguel.getLocalDevolucao()
+                + '|' + aluguel.getValor()
+                + '|' + cliente.getNome() + '|' + cliente.getDocumento()
+                + '|' + veiculo.getPlaca() + '|' + veiculo.getNome() + '|' + veiculo.getTipo();
+    }
+
+    /**
+     * Resumo (SHA-256) do estado de todos os recibos de um ZIP, na ordem das entradas.
+     */
+    private static String estadoRecibos(List<Recibo> recibos) {
+        MessageDigest resumo;
+        try {
+            resumo = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todo JDK tem SHA-256
+            throw new IllegalStateException(e);
+        }
+        for (Recibo recibo : recibos) {
+            resumo.update((recibo.nomeEntrada() + '|' + estadoRecibo(recibo.aluguel) + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(resumo.digest());
+    }
+
+    /**
+     * Escreve os recibos como entradas de um ZIP, por um único stream bufferizado.
+     * Os recibos são renderizados em memória, em paralelo, em lotes de RECIBOS_POR_LOTE;
+     * a escrita segue a ordem da lista. Todos levam o mesmo horário de geração.
+     */
+    private void escreverRecibos(Path arquivo, List<Recibo> recibos) throws IOException {
+        LocalDateTime geradoEm = LocalDateTime.now();
+        long horarioEntradas = geradoEm.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        try (ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(arquivo), TAMANHO_BUFFER_ZIP))) {
+            // Recibos são texto repetitivo: a compressão mais rápida já reduz bem o arquivo
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (int inicio = 0; inicio < recibos.size(); inicio += RECIBOS_POR_LOTE) {
+                List<Recibo> lote = recibos.subList(inicio, Math.min(inicio + RECIBOS_POR_LOTE, recibos.size()));
+                List<byte[]> conteudos = lote.parallelStream()
+                        .map(recibo -> recibo.renderizar(geradoEm))
+                        .toList();
+                for (int i = 0; i < lote.size(); i++) {
+                    ZipEntry entrada = new ZipEntry(lote.get(i).nomeEntrada());
+                    entrada.setTime(horarioEntradas);
+                    zip.putNextEntry(entrada);
+                    zip.write(conteudos.get(i));
+                    zip.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Um recibo a gerar em lote. No ZIP, o nome leva o ID completo do aluguel: o prefixo de
+     * 8 caracteres dos recibos avulsos pode se repetir entre milhares de aluguéis.
+     */
+    private static final class Recibo {
+        private final String prefixo;
+        private final ModeloRelatorio<Aluguel> modelo;
+        private final Aluguel aluguel;
+
+        private Recibo(String prefixo, ModeloRelatorio<Aluguel> modelo, Aluguel aluguel) {
+            this.prefixo = prefixo;
+            this.modelo = modelo;
+            this.aluguel = aluguel;
+        }
+
+        private String nomeEntrada() {
+            return prefixo + aluguel.getId() + ".txt";
+        }
+
+        private byte[] renderizar(LocalDateTime geradoEm) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(2048);
+            try (SaidaRelatorio saida = new SaidaRelatorio(Channels.newChannel(bytes))) {
+                modelo.escrever(saida, aluguel);
+                escreverRodape(saida, "Recibo gerado em: ", geradoEm);
+            } catch (IOException e) {
+                // Escrita em memória: não chega a falhar
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
     }
 
     /**
      * Gera relatório completo de todos os aluguéis.
-     * Usa Streams + Files para processar e escrever dados.
+     * Os totais vêm dos contadores e índices do repositório; só os ativos (no máximo um por veículo)
+     * e os últimos 20 finalizados são lidos, então a memória não cresce com o histórico.
      */
     public void gerarRelatorioCompletodeAlugueis() throws IOException {
-        String nomeArquivo = String.format("%s/relatorio_completo_alugueis.txt", DIRETORIO_RELATORIOS);
-        Path path = Paths.get(nomeArquivo);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(path,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("RELATÓRIO COMPLETO DE ALUGUÉIS");
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.newLine();
-
-            List<Aluguel> todosAlugueis = aluguelService.listarTodos();
-            List<Aluguel> ativos = aluguelService.listarAtivos();
-            List<Aluguel> finalizados = aluguelService.listarFinalizados();
-
-            writer.write(String.format("Total de aluguéis: %d", todosAlugueis.size()));
-            writer.newLine();
-            writer.write(String.format("Aluguéis ativos: %d", ativos.size()));
-            writer.newLine();
-            writer.write(String.format("Aluguéis finalizados: %d", finalizados.size()));
-            writer.newLine();
-            writer.newLine();
-
-            // Aluguéis ativos
-            writer.write("ALUGUÉIS ATIVOS:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-
-            ativos.stream()
-                    .sorted((a1, a2) -> a2.getDataHoraRetirada().compareTo(a1.getDataHoraRetirada()))
-                    .forEach(aluguel -> {
-                        try {
-                            writer.write(FORMATADOR_ALUGUEL.formatar(aluguel));
-                            writer.newLine();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-
-            writer.newLine();
-
-            // Aluguéis finalizados
-            writer.write("ALUGUÉIS FINALIZADOS:");
-            writer.newLine();
-            writer.write("-".repeat(80));
-            writer.newLine();
-
-            finalizados.stream()
-                    .sorted((a1, a2) -> a2.getDataHoraDevolucao().compareTo(a1.getDataHoraDevolucao()))
-                    .limit(20) // Últimos 20
-                    .forEach(aluguel -> {
-                        try {
-                            writer.write(String.format("%s | Devolução: %s | Valor: R$ %.2f",
-                                    FORMATADOR_ALUGUEL.formatar(aluguel),
-                                    aluguel.getDataHoraDevolucao().format(FORMATO_DATA),
-                                    aluguel.getValorTotal()));
-                            writer.newLine();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-            writer.write("Relatório gerado em: " + LocalDateTime.now().format(FORMATO_DATA));
-            writer.newLine();
+        boolean gerado = cache.gerarSeNecessario(ARQUIVO_RELATORIO_COMPLETO, SEM_PARAMETROS,
+                aluguelService.getVersaoDados(),
+                () -> escreverRelatorioCompleto(aluguelService.contarAlugueis(), listarAtivosPorRetirada(),
+                        aluguelService.contarFinalizados(), aluguelService.listarUltimosFinalizados(ULTIMOS_FINALIZADOS)));
+        informar("Relatório completo de aluguéis", ARQUIVO_RELATORIO_COMPLETO, gerado);
+    }
+
+    private List<Aluguel> listarAtivosPorRetirada() {
+        List<Aluguel> ativos = aluguelService.listarAtivos();
+        ativos.sort(Comparator.comparing(Aluguel::getDataHoraRetirada).reversed());
+        return ativos;
+    }
+
+    private void escreverRelatorioCompleto(int totalAlugueis, List<Aluguel> ativos, long totalFinalizados,
+                                           List<Aluguel> ultimosFinalizados) throws IOException {
+        try (SaidaRelatorio saida = SaidaRelatorio.abrir(ARQUIVO_RELATORIO_COMPLETO)) {
+            escreverCabecalho(saida, "RELATÓRIO COMPLETO DE ALUGUÉIS");
+            saida.novaLinha();
+            saida.append("Total de aluguéis: ").inteiro(totalAlugueis, 0).novaLinha();
+            saida.append("Aluguéis ativos: ").inteiro(ativos.size(), 0).novaLinha();
+            saida.append("Aluguéis finalizados: ").inteiro(totalFinalizados, 0).novaLinha();
+            saida.novaLinha();
+
+            escreverSecao(saida, "ALUGUÉIS ATIVOS:");
+            for (Aluguel aluguel : ativos) {
+                FORMATADOR_ALUGUEL.escrever(saida, aluguel);
+                saida.novaLinha();
+            }
+            saida.novaLinha();
+
+            escreverSecao(saida, "ALUGUÉIS FINALIZADOS:");
+            for (Aluguel aluguel : ultimosFinalizados) {
+                FORMATADOR_ALUGUEL.escrever(saida, aluguel);
+                COMPLEMENTO_FINALIZADO.escrever(saida, aluguel);
+                saida.novaLinha();
+            }
+
+            saida.novaLinha();
+            escreverRodape(saida, "Relatório gerado em: ");
+        }
+    }
+
+    /**
+     * Inicia, em segundo plano, a geração dos relatórios gerais (faturamento do período, veículos
+     * mais alugados, clientes que mais alugaram e relatório completo) e retorna sem esperar.
+     *
+     * Os dados de todos eles são lidos uma única vez, numa leitura consistente (nenhum aluguel
+     * é gravado no meio dela); depois cada relatório é escrito em paralelo, e o conjunto
+     * termina no tempo do relatório mais demorado. Os que já estão atualizados para esses
+     * dados nem chegam a ir para segundo plano: o future já nasce concluído.
+     */
+    public TarefaRelatorios gerarTodosRelatorios(LocalDateTime inicio, LocalDateTime fim) {
+        Instantaneo dados = aluguelService.lerConsistente(() -> new Instantaneo(inicio, fim));
+
+        Map<String, CompletableFuture<Path>> relatorios = new LinkedHashMap<>();
+        relatorios.put("Faturamento por período", gerarSeNecessario(arquivoFaturamento(inicio, fim),
+                parametrosPeriodo(inicio, fim), dados.versao,
+                arquivo -> escreverFaturamento(arquivo, dados.inicio, dados.fim, dados.faturamento)));
+        relatorios.put("Veículos mais alugados", gerarSeNecessario(ARQUIVO_VEICULOS_MAIS_ALUGADOS,
+                SEM_PARAMETROS, dados.versao,
+                arquivo -> escreverVeiculosMaisAlugados(dados.totalVeiculos, dados.veiculosAlugados, dados.rankingVeiculos)));
+        relatorios.put("Clientes que mais alugaram", gerarSeNecessario(ARQUIVO_CLIENTES_QUE_MAIS_ALUGARAM,
+                SEM_PARAMETROS, dados.versao,
+                arquivo -> escreverClientesQueMaisAlugaram(dados.totalClientes, dados.clientesQueAlugaram, dados.rankingClientes)));
+        relatorios.put("Relatório completo de aluguéis", gerarSeNecessario(ARQUIVO_RELATORIO_COMPLETO,
+                SEM_PARAMETROS, dados.versao,
+                arquivo -> escreverRelatorioCompleto(dados.totalAlugueis, dados.ativos, dados.totalFinalizados, dados.ultimosFinalizados)));
+        return new TarefaRelatorios(relatorios);
+    }
+
+    private CompletableFuture<Path> gerarSeNecessario(Path arquivo, String parametros, long versao, Geracao geracao) {
+        if (cache.estaAtualizado(arquivo, parametros, versao)) {
+            return CompletableFuture.completedFuture(arquivo);
+        }
+        // Outra geração do mesmo arquivo pode estar em andamento: o cache confere de novo antes de escrever
+        return emSegundoPlano(() -> {
+            cache.gerarSeNecessario(arquivo, parametros, versao, () -> geracao.gerar(arquivo));
+            return arquivo;
+        });
+    }
+
+    private CompletableFuture<Path> emSegundoPlano(Callable<Path> geracao) {
+        CompletableFuture<Path> resultado = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    resultado.complete(geracao.call());
+                } catch (Exception e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    @FunctionalInterface
+    private interface Geracao {
+        void gerar(Path arquivo) throws IOException;
+    }
+
+    /**
+     * Dados de todos os relatórios gerais, lidos de uma vez. Os aluguéis são cópias, então
+     * devoluções feitas durante a escrita não aparecem pela metade.
+     */
+    private final class Instantaneo {
+        private final long versao;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fim;
+        private final FaturamentoAgregado.Resumo faturamento;
+        private final int totalVeiculos;
+        private final int veiculosAlugados;
+        private final List<Ranking.Posicao<Veiculo>> rankingVeiculos;
+        private final int totalClientes;
+        private final int clientesQueAlugaram;
+        private final List<Ranking.Posicao<Cliente>> rankingClientes;
+        private final int totalAlugueis;
+        private final List<Aluguel> ativos;
+        private final long totalFinalizados;
+        private final List<Aluguel> ultimosFinalizados;
+
+        private Instantaneo(LocalDateTime inicio, LocalDateTime fim) {
+            this.versao = aluguelService.getVersaoDados();
+            this.inicio = inicio;
+            this.fim = fim;
+            this.faturamento = aluguelService.resumirFaturamento(inicio, fim);
+            this.totalVeiculos = veiculoService.listarTodos().size();
+            this.veiculosAlugados = aluguelService.contarVeiculosAlugados();
+            this.rankingVeiculos = aluguelService.obterVeiculosMaisAlugados(TAMANHO_RANKING);
+            this.totalClientes = clienteService.listarTodos().size();
+            this.clientesQueAlugaram = aluguelService.contarClientesQueAlugaram();
+            this.rankingClientes = aluguelService.obterClientesQueMaisAlugaram(TAMANHO_RANKING);
+            this.totalAlugueis = aluguelService.contarAlugueis();
+            this.ativos = listarAtivosPorRetirada().stream().map(Aluguel::copiar).toList();
+            this.totalFinalizados = aluguelService.contarFinalizados();
+            this.ultimosFinalizados = aluguelService.listarUltimosFinalizados(ULTIMOS_FINALIZADOS).stream()
+                    .map(Aluguel::copiar).toList();
         }
+    }
+
+    private static void informar(String descricao, Path arquivo, boolean gerado) {
+        System.out.println(descricao + (gerado ? " gerado: " : " sem alterações nos dados desde a última geração: ") + arquivo);
+    }
+
+    private static void escreverCabecalho(SaidaRelatorio saida, String titulo) throws IOException {
+        saida.append(LINHA_DUPLA).novaLinha();
+        saida.append(titulo).novaLinha();
+        saida.append(LINHA_DUPLA).novaLinha();
+    }
+
+    private static void escreverSecao(SaidaRelatorio saida, String titulo) throws IOException {
+        saida.append(titulo).novaLinha();
+        saida.append(LINHA_SIMPLES).novaLinha();
+    }
+
+    private static void escreverRodape(SaidaRelatorio saida, String rotulo) throws IOException {
+        escreverRodape(saida, rotulo, LocalDateTime.now());
+    }
 
-        System.out.println("Relatório completo de aluguéis gerado: " + nomeArquivo);
+    private static void escreverRodape(SaidaRelatorio saida, String rotulo, LocalDateTime geradoEm) throws IOException {
+        saida.append(LINHA_DUPLA).novaLinha();
+        saida.append(rotulo).dataHora(geradoEm, FORMATO_DATA, 0).novaLinha();
     }
 }
@@ -0,0 +1,65 @@
+package services;
+
+import model.Aluguel;
+
+/**
+ * Resultado de uma tentativa de aluguel (ou devolução): o aluguel criado ou o motivo da recusa.
+ * Permite tratar a recusa (ex.: veículo reservado por outro balcão) sem exceção.
+ * Nas operações em lote, há um resultado por item, na ordem do pedido.
+ */
+public class ResultadoAluguel {
+
+    public enum Status {
+        SUCESSO("Aluguel registrado"),
+        CLIENTE_NAO_ENCONTRADO("Cliente não encontrado"),
+        VEICULO_NAO_ENCONTRADO("Veículo não encontrado"),
+        VEICULO_INDISPONIVEL("Veículo não está disponível"),
+        ALUGUEL_NAO_ENCONTRADO("Aluguel não encontrado"),
+        ALUGUEL_FINALIZADO("Aluguel já finalizado"),
+        ITEM_REPETIDO("Item repetido no lote"),
+        LOTE_CANCELADO("Não processado: outro item do lote foi recusado");
+
+        private final String mensagem;
+
+        Status(String mensagem) {
+            this.mensagem = mensagem;
+        }
+
+        public String getMensagem() {
+            return mensagem;
+        }
+    }
+
+    private final Status status;
+    private final Aluguel aluguel;
+
+    private ResultadoAluguel(Status status, Aluguel aluguel) {
+        this.status = status;
+        this.aluguel = aluguel;
+    }
+
+    public static ResultadoAluguel sucesso(Aluguel aluguel) {
+        return new ResultadoAluguel(Status.SUCESSO, aluguel);
+    }
+
+    public static ResultadoAluguel falha(Status status) {
+        return new ResultadoAluguel(status, null);
+    }
+
+    public boolean isSucesso() {
+        return status == Status.SUCESSO;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Aluguel criado (ou devolvido); null quando a tentativa foi recusada. */
+    public Aluguel getAluguel() {
+        return aluguel;
+    }
+
+    public String getMensagem() {
+        return status.getMensagem();
+    }
+}
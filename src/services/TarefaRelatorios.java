@@ -0,0 +1,80 @@
+package services;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Um conjunto de relatórios gerados em segundo plano, em paralelo, a partir dos mesmos dados.
+ *
+ * Cada relatório tem o seu future, que termina com o arquivo gerado (ou com a exceção da geração);
+ * getConclusao() termina quando todos terminarem. O andamento pode ser consultado a qualquer
+ * momento, sem esperar.
+ */
+public class TarefaRelatorios {
+    private final Map<String, CompletableFuture<Path>> relatorios;
+    private final CompletableFuture<List<Path>> conclusao;
+    private final long inicio = System.nanoTime();
+    private volatile long fim;
+
+    /**
+     * @param relatorios future de cada relatório, pelo nome de exibição, na ordem de exibição
+     */
+    TarefaRelatorios(Map<String, CompletableFuture<Path>> relatorios) {
+        this.relatorios = Collections.unmodifiableMap(new LinkedHashMap<>(relatorios));
+        CompletableFuture<Void> todos = CompletableFuture.allOf(relatorios.values().toArray(CompletableFuture[]::new));
+        todos.whenComplete((ignorado, erro) -> fim = System.nanoTime());
+        this.conclusao = todos.thenApply(ignorado -> {
+            List<Path> arquivos = new ArrayList<>(this.relatorios.size());
+            this.relatorios.values().forEach(relatorio -> arquivos.add(relatorio.join()));
+            return arquivos;
+        });
+    }
+
+    public Map<String, CompletableFuture<Path>> getRelatorios() {
+        return relatorios;
+    }
+
+    /**
+     * Termina com os arquivos gerados, na ordem dos relatórios, ou com a falha do primeiro que falhar.
+     */
+    public CompletableFuture<List<Path>> getConclusao() {
+        return conclusao;
+    }
+
+    public int getTotal() {
+        return relatorios.size();
+    }
+
+    /**
+     * Relatórios já terminados, com sucesso ou falha.
+     */
+    public int getConcluidos() {
+        return (int) relatorios.values().stream().filter(CompletableFuture::isDone).count();
+    }
+
+    public int getFalhas() {
+        return (int) relatorios.values().stream().filter(CompletableFuture::isCompletedExceptionally).count();
+    }
+
+    public int getPercentual() {
+        return relatorios.isEmpty() ? 100 : getConcluidos() * 100 / relatorios.size();
+    }
+
+    public boolean isConcluida() {
+        return getConcluidos() == relatorios.size();
+    }
+
+    /**
+     * Tempo desde o início, ou até o último relatório terminar.
+     */
+    public Duration getDuracao() {
+        long termino = fim;
+        return Duration.ofNanos((termino == 0 ? System.nanoTime() : termino) - inicio);
+    }
+}
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 import model.TipoVeiculo;
 import model.Veiculo;
 import repositories.VeiculoRepository;
+import utils.Pagina;
 
 public class VeiculoService {
     private final VeiculoRepository repository;
@@ -45,13 +46,9 @@ public class VeiculoService {
             throw new IllegalArgumentException("Placa inválida. Use o formato ABC-1234 ou ABC1D23.");
         }
 
-        Optional<Veiculo> existente = repository.buscarPorPlaca(veiculo.getPlaca());
-        if (existente.isPresent()) {
+        if (!repository.salvarSeAusente(veiculo)) {
             throw new IllegalArgumentException("Já existe um veículo com esta placa cadastrado.");
         }
-
-        repository.salvar(veiculo);
-        repository.salvarEmArquivo();
     }
 
     public Optional<Veiculo> buscarPorPlaca(String placa) {
@@ -72,6 +69,13 @@ public class VeiculoService {
         return repository.listarComPaginacao(pagina, tamanhoPagina);
     }
 
+    /**
+     * Paginação por cursor: passe null para a primeira página e depois o cursor retornado.
+     */
+    public Pagina<Veiculo> listarAPartirDe(String cursor, int tamanhoPagina) {
+        return repository.listarAPartirDe(cursor, tamanhoPagina);
+    }
+
     public List<Veiculo> listarDisponiveis() {
         return repository.buscarDisponiveis();
     }
@@ -83,6 +87,13 @@ public class VeiculoService {
         return repository.buscarDisponiveisComPaginacao(pagina, tamanhoPagina);
     }
 
+    /**
+     * Veículos disponíveis com paginação por cursor.
+     */
+    public Pagina<Veiculo> listarDisponiveisAPartirDe(String cursor, int tamanhoPagina) {
+        return repository.buscarDisponiveisAPartirDe(cursor, tamanhoPagina);
+    }
+
     public List<Veiculo> buscarPorNome(String nome) {
         return repository.buscarPorNomeParcial(nome);
     }
@@ -153,6 +164,5 @@ public class VeiculoService {
         }
 
         repository.salvar(veiculo);
-        repository.salvarEmArquivo();
     }
 }
@@ -0,0 +1,266 @@
+package utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal append-only para persistência incremental.
+ * Cada registro é acrescentado ao fim do arquivo, sem regravar os anteriores,
+ * no formato [int -tamanho][int CRC32][byte versão do esquema][bytes do codec],
+ * e sincronizado no disco antes de anexar() retornar.
+ *
+ * Um registro incompleto ou com CRC inválido (queda durante a escrita) encerra a leitura,
+ * e o arquivo é truncado no último registro válido para que os próximos não fiquem inacessíveis.
+ * Já um registro completo que o codec não consegue decodificar (esquema desconhecido, lote malformado)
+ * interrompe a leitura com IllegalStateException, sem truncar nada.
+ * Registros antigos, sem CRC (tamanho positivo) ou em serialização Java, ainda são lidos
+ * até a próxima compactação.
+ *
+ * anexarTodos() grava um lote como um único registro (versão VERSAO_LOTE seguida dos itens),
+ * protegido por um só CRC: após uma queda, o lote inteiro é lido ou descartado, nunca pela metade.
+ *
+ * Na compactação, o journal não é apagado: rotacionar() o guarda como geração anterior
+ * (.anterior), que com o snapshot anterior (.bak) reconstitui o snapshot atual, caso ele se perca.
+ * Cada rotação descarta a geração anterior da rotação passada.
+ *
+ * O acesso é serializado por ReentrantLock, que não prende a thread portadora de virtual threads durante o I/O.
+ */
+public class ArquivoJournal<T> {
+    private static final byte[] MAGICO_SERIALIZACAO_JAVA = {(byte) 0xAC, (byte) 0xED};
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 20;
+    // Fora da faixa das versões de esquema dos codecs
+    private static final int VERSAO_LOTE = 0xFF;
+    private static final String SUFIXO_ANTERIOR = ".anterior";
+
+    private final Path arquivo;
+    private final Path anterior;
+    private final Codec<T> codec;
+    private int totalRegistros;
+    private final ReentrantLock trava = new ReentrantLock();
+
+    public ArquivoJournal(String arquivo, Codec<T> codec) {
+        this.arquivo = Paths.get(arquivo);
+        this.anterior = Paths.get(arquivo + SUFIXO_ANTERIOR);
+        this.codec = codec;
+    }
+
+    public void anexar(T registro) {
+        gravar(codificar(registro), 1);
+    }
+
+    /**
+     * Anexa vários registros com uma única escrita e uma única sincronização no disco.
+     * Na leitura, o lote volta como registros individuais, na mesma ordem.
+     */
+    public void anexarTodos(List<T> registros) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        if (registros.size() == 1) {
+            anexar(registros.get(0));
+            return;
+        }
+        ByteArrayOutputStream lote = new ByteArrayOutputStream(256 * registros.size());
+        try (DataOutputStream out = new DataOutputStream(lote)) {
+            out.writeByte(VERSAO_LOTE);
+            out.writeInt(registros.size());
+            for (T registro : registros) {
+                byte[] item = codificar(registro);
+                out.writeInt(item.length);
+                out.write(item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao codificar lote do journal", e);
+        }
+        byte[] bytes = lote.toByteArray();
+        if (bytes.length > TAMANHO_MAXIMO_REGISTRO) {
+            throw new IllegalArgumentException("Lote grande demais para um registro do journal: " + bytes.length + " bytes");
+        }
+        gravar(bytes, registros.size());
+    }
+
+    private void gravar(byte[] bytes, int quantidade) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + bytes.length);
+        buffer.putInt(-bytes.length).putInt(crc(bytes, bytes.length)).put(bytes).flip();
+        trava.lock();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+            totalRegistros += quantidade;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar no journal " + arquivo, e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public List<T> lerTodos() {
+        trava.lock();
+        try {
+            List<T> registros = lerRegistros(arquivo);
+            totalRegistros = registros.size();
+            return registros;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public boolean temGeracaoAnterior() {
+        return Files.exists(anterior);
+    }
+
+    /**
+     * Registros da geração anterior, já incluídos no snapshot atual: só para reconstituí-lo
+     * a partir do snapshot anterior.
+     */
+    public List<T> lerGeracaoAnterior() {
+        trava.lock();
+        try {
+            return lerRegistros(anterior);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private List<T> lerRegistros(Path origem) {
+        List<T> registros = new ArrayList<>();
+        if (!Files.exists(origem)) {
+            return registros;
+        }
+
+        long validos = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(origem)))) {
+            while (true) {
+                boolean comCrc;
+                byte[] bytes;
+                try {
+                    int tamanho = in.readInt();
+                    if (tamanho == Integer.MIN_VALUE || Math.abs(tamanho) > TAMANHO_MAXIMO_REGISTRO) {
+                        break;
+                    }
+                    comCrc = tamanho < 0;
+                    bytes = new byte[Math.abs(tamanho)];
+                    int esperado = comCrc ? in.readInt() : 0;
+                    in.readFully(bytes);
+                    if (comCrc && crc(bytes, bytes.length) != esperado) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // fim do journal (ou registro final incompleto)
+                    break;
+                }
+                try {
+                    decodificar(bytes, registros);
+                } catch (IOException | ClassNotFoundException e) {
+                    // Registro completo (e íntegro, se tem CRC) que o codec não entende: não é uma
+                    // escrita interrompida, e truncar aqui apagaria aluguéis já confirmados
+                    throw new IllegalStateException("Journal " + origem + ": registro na posição " + validos
+                            + " não pôde ser decodificado (" + e.getMessage() + "); o arquivo não foi alterado", e);
+                }
+                validos += (comCrc ? 8 : 4) + bytes.length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler o journal " + origem, e);
+        }
+        descartarFinalInvalido(origem, validos);
+        return registros;
+    }
+
+    /**
+     * Começa um journal vazio e guarda o atual como geração anterior, no lugar da que havia;
+     * chamado depois que o snapshot com todos os registros foi gravado e relido.
+     */
+    public void rotacionar() {
+        trava.lock();
+        try {
+            if (!Files.exists(arquivo)) {
+                // Sem registros desde a última compactação: a geração anterior fica vazia
+                Files.createFile(arquivo);
+            }
+            Files.move(arquivo, anterior, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            totalRegistros = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao rotacionar o journal " + arquivo, e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private static void descartarFinalInvalido(Path arquivo, long validos) {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            if (canal.size() > validos) {
+                System.err.println("Journal " + arquivo + ": descartados " + (canal.size() - validos)
+                        + " bytes inválidos após o último registro íntegro.");
+                canal.truncate(validos);
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao reparar o journal " + arquivo, e);
+        }
+    }
+
+    private static int crc(byte[] bytes, int tamanho) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, tamanho);
+        return (int) crc.getValue();
+    }
+
+    public int getTotalRegistros() {
+        trava.lock();
+        try {
+            return totalRegistros;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private byte[] codificar(T registro) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(codec.versao());
+            codec.escrever(out, registro);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao codificar registro do journal", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void decodificar(byte[] bytes, List<T> registros) throws IOException, ClassNotFoundException {
+        if (bytes.length == 0 || (bytes[0] & 0xFF) != VERSAO_LOTE) {
+            registros.add(decodificar(bytes));
+            return;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+        int quantidade = in.readInt();
+        for (int i = 0; i < quantidade; i++) {
+            byte[] item = new byte[in.readInt()];
+            in.readFully(item);
+            registros.add(decodificar(item));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decodificar(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (bytes.length >= 2 && bytes[0] == MAGICO_SERIALIZACAO_JAVA[0] && bytes[1] == MAGICO_SERIALIZACAO_JAVA[1]) {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (T) ois.readObject();
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int versao = in.readUnsignedByte();
+        return codec.ler(in, versao);
+    }
+}
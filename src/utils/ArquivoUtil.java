@@ -1,25 +1,334 @@
-
 package utils;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
+/**
+ * Leitura e gravação das listas de entidades nos arquivos .dat.
+ * Formato: int mágico + int versão do esquema + int quantidade + registros.
+ * Cada registro é gravado como [int tamanho][int CRC32][bytes do codec].
+ *
+ * A gravação é atômica: o conteúdo vai para um arquivo temporário, é sincronizado no disco
+ * e só então substitui o arquivo por rename. A geração anterior fica em .bak; lerLista() a usa
+ * quando o arquivo atual estiver ilegível, e se nenhuma das duas puder ser lida, o carregamento falha.
+ *
+ * Arquivos antigos (serialização Java) são lidos uma única vez e regravados no formato binário;
+ * se não puderem ser migrados, o carregamento falha.
+ */
 public class ArquivoUtil {
-	public static <T> void salvarLista(String arquivo, List<T> lista) {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(arquivo))) {
-			oos.writeObject(lista);
+	private static final int MAGICO_SEM_CRC = 0x414C4331; // "ALC1"
+	private static final int MAGICO = 0x414C4332; // "ALC2"
+	private static final int MAGICO_SERIALIZACAO_JAVA = 0xACED;
+	private static final int TAMANHO_BUFFER = 256 * 1024;
+	private static final String SUFIXO_TEMPORARIO = ".tmp";
+	private static final String SUFIXO_ANTERIOR = ".bak";
+	private static final String SUFIXO_CORROMPIDO = ".corrompido";
+
+	public static <T> void salvarLista(String arquivo, List<T> lista, Codec<T> codec) {
+		Path destino = Paths.get(arquivo);
+		Path temporario = Paths.get(arquivo + SUFIXO_TEMPORARIO);
+		try {
+			try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(canal), TAMANHO_BUFFER));
+				out.writeInt(MAGICO);
+				out.writeInt(codec.versao());
+				out.writeInt(lista.size());
+
+				BufferRegistro registro = new BufferRegistro();
+				DataOutputStream outRegistro = new DataOutputStream(registro);
+				CRC32 crc = new CRC32();
+				for (T item : lista) {
+					registro.reset();
+					codec.escrever(outRegistro, item);
+					crc.reset();
+					crc.update(registro.bytes(), 0, registro.size());
+					out.writeInt(registro.size());
+					out.writeInt((int) crc.getValue());
+					out.write(registro.bytes(), 0, registro.size());
+				}
+				out.flush();
+				canal.force(true);
+			}
+			substituirGeracao(temporario, destino);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao gravar " + arquivo, e);
+		}
+	}
+
+	/**
+	 * O arquivo atual vira a geração anterior (.bak) e o temporário assume o seu lugar.
+	 */
+	private static void substituirGeracao(Path temporario, Path destino) throws IOException {
+		if (Files.exists(destino)) {
+			Files.move(destino, Paths.get(destino + SUFIXO_ANTERIOR),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+
+		Path diretorio = destino.toAbsolutePath().getParent();
+		try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+			canal.force(true);
+		} catch (IOException e) {
+			// nem todo sistema de arquivos permite sincronizar diretórios
+		}
+	}
+
+	/**
+	 * Lê o arquivo; se ele estiver ilegível (ou tiver sumido, restando o .bak), lê a geração anterior
+	 * e separa o arquivo ilegível (ver separarCorrompido). Só para arquivos que podem voltar uma
+	 * geração sem perder dados de outra fonte; os aluguéis usam lerGeracaoAtual() e o journal.
+	 */
+	public static <T> List<T> lerLista(String arquivo, Codec<T> codec) {
+		try {
+			return lerAtual(arquivo, codec, lista -> { });
 		} catch (IOException e) {
-			e.printStackTrace();
+			System.err.println("Arquivo " + arquivo + " ilegível (" + e.getMessage()
+					+ "). Carregando a geração anterior " + arquivo + SUFIXO_ANTERIOR + ".");
+			List<T> lista;
+			try {
+				lista = lerGeracaoAnterior(arquivo, codec);
+			} catch (UncheckedIOException anterior) {
+				anterior.addSuppressed(e);
+				throw anterior;
+			}
+			separarCorrompido(arquivo);
+			return lista;
 		}
 	}
 
+	/**
+	 * Lê só a geração atual. Sem o arquivo e sem .bak, a lista é vazia.
+	 *
+	 * @throws UncheckedIOException se o arquivo estiver ilegível ou tiver sumido, restando o .bak
+	 */
+	public static <T> List<T> lerGeracaoAtual(String arquivo, Codec<T> codec) {
+		return lerGeracaoAtual(arquivo, codec, lista -> { });
+	}
+
+	/**
+	 * Como lerGeracaoAtual(arquivo, codec), avisando antes de regravar um arquivo antigo no formato
+	 * binário: o codec pode gravar menos do que o arquivo antigo tinha (ex.: só a chave de uma
+	 * entidade embutida), e quem chama precisa guardar o resto antes.
+	 *
+	 * @param antesDeMigrar recebe a lista lida do arquivo antigo; se lançar exceção, o arquivo não é regravado
+	 */
+	public static <T> List<T> lerGeracaoAtual(String arquivo, Codec<T> codec, Consumer<List<T>> antesDeMigrar) {
+		try {
+			return lerAtual(arquivo, codec, antesDeMigrar);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Arquivo " + arquivo + " ilegível", e);
+		}
+	}
+
+	/**
+	 * Lê a geração anterior (.bak).
+	 *
+	 * @throws UncheckedIOException se ela não existir ou estiver ilegível
+	 */
+	public static <T> List<T> lerGeracaoAnterior(String arquivo, Codec<T> codec) {
+		Path anterior = Paths.get(arquivo + SUFIXO_ANTERIOR);
+		try (DataInputStream in = abrirLeitura(anterior)) {
+			return lerRegistros(anterior.toString(), in, codec, in.readInt());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Geração anterior " + anterior + " ausente ou ilegível", e);
+		}
+	}
+
+	/**
+	 * Tira o arquivo atual do lugar, com um nome que não sobrescreve cópias anteriores: ele fica
+	 * para análise e a próxima gravação não o transforma na geração anterior (o .bak continua o mesmo).
+	 */
+	public static void separarCorrompido(String arquivo) {
+		Path atual = Paths.get(arquivo);
+		if (!Files.exists(atual)) {
+			return;
+		}
+		Path copia = Paths.get(arquivo + SUFIXO_CORROMPIDO + "-" + System.currentTimeMillis());
+		try {
+			Files.move(atual, copia);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao separar " + arquivo + " ilegível", e);
+		}
+		System.err.println("Arquivo ilegível preservado em " + copia + ".");
+	}
+
+	private static <T> List<T> lerAtual(String arquivo, Codec<T> codec, Consumer<List<T>> antesDeMigrar) throws IOException {
+		Path atual = Paths.get(arquivo);
+		if (!Files.exists(atual) && !Files.exists(Paths.get(arquivo + SUFIXO_ANTERIOR))) {
+			return new ArrayList<>();
+		}
+
+		List<T> legado;
+		try (DataInputStream in = abrirLeitura(atual)) {
+			in.mark(4);
+			int magico = in.readInt();
+			if (magico >>> 16 != MAGICO_SERIALIZACAO_JAVA) {
+				return lerRegistros(arquivo, in, codec, magico);
+			}
+			in.reset();
+			legado = lerSerializacaoJava(arquivo, in);
+		}
+
+		// Migração única: o arquivo antigo é regravado no formato binário
+		antesDeMigrar.accept(legado);
+		salvarLista(arquivo, legado, codec);
+		System.out.println("Arquivo " + arquivo + " migrado para o formato binário (" + legado.size() + " registros).");
+		return legado;
+	}
+
+	private static DataInputStream abrirLeitura(Path arquivo) throws IOException {
+		FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+		return new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), TAMANHO_BUFFER));
+	}
+
+	private static <T> List<T> lerRegistros(String arquivo, DataInputStream in, Codec<T> codec, int magico) throws IOException {
+		if (magico != MAGICO && magico != MAGICO_SEM_CRC) {
+			throw new IOException("Formato de arquivo desconhecido: " + arquivo);
+		}
+		int versao = in.readInt();
+		if (versao > codec.versao()) {
+			throw new IOException("Versão de esquema não suportada em " + arquivo + ": " + versao);
+		}
+		int quantidade = in.readInt();
+		if (quantidade < 0) {
+			throw new IOException("Quantidade de registros inválida em " + arquivo + ": " + quantidade);
+		}
+		List<T> lista = new ArrayList<>(Math.min(quantidade, 1 << 16));
+		if (magico == MAGICO_SEM_CRC) {
+			for (int i = 0; i < quantidade; i++) {
+				lista.add(codec.ler(in, versao));
+			}
+		} else {
+			CRC32 crc = new CRC32();
+			byte[] bytes = new byte[256];
+			for (int i = 0; i < quantidade; i++) {
+				int tamanho = in.readInt();
+				int esperado = in.readInt();
+				if (tamanho < 0 || tamanho > TAMANHO_BUFFER * 64) {
+					throw new IOException("Registro " + i + " de " + arquivo + " com tamanho inválido: " + tamanho);
+				}
+				if (tamanho > bytes.length) {
+					bytes = new byte[Math.max(tamanho, bytes.length * 2)];
+				}
+				in.readFully(bytes, 0, tamanho);
+				crc.reset();
+				crc.update(bytes, 0, tamanho);
+				if ((int) crc.getValue() != esperado) {
+					throw new IOException("Registro " + i + " de " + arquivo + " com CRC inválido");
+				}
+				lista.add(codec.ler(new DataInputStream(new ByteArrayInputStream(bytes, 0, tamanho)), versao));
+			}
+		}
+		if (in.read() != -1) {
+			throw new IOException("Dados além do último registro em " + arquivo);
+		}
+		return lista;
+	}
+
+	/**
+	 * Uma falha aqui não é tratada como arquivo corrompido: o arquivo antigo não tem geração
+	 * anterior, e seguir com a lista vazia apagaria os dados na próxima gravação. O carregamento
+	 * falha e o arquivo fica intocado.
+	 */
 	@SuppressWarnings("unchecked")
-	public static <T> List<T> lerLista(String arquivo) {
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(arquivo))) {
-			return (List<T>) ois.readObject();
+	private static <T> List<T> lerSerializacaoJava(String arquivo, InputStream in) {
+		try (ObjectInputStream ois = new ObjectInputStreamMigracao(in)) {
+			return new ArrayList<>((List<T>) ois.readObject());
 		} catch (IOException | ClassNotFoundException e) {
-			return new ArrayList<>();
+			throw new IllegalStateException("Não foi possível migrar " + arquivo + " (" + e.getMessage()
+					+ "); o arquivo não foi alterado", e);
+		}
+	}
+
+	/**
+	 * Os .dat antigos foram gravados por versões das classes do modelo sem serialVersionUID fixo.
+	 * Os campos são os mesmos, então o descritor local é usado no lugar do gravado no arquivo.
+	 */
+	private static class ObjectInputStreamMigracao extends ObjectInputStream {
+		private static final List<Class<?>> CLASSES_LEGADAS = List.of(
+				utils.legado.PessoaFisica.class, utils.legado.PessoaJuridica.class);
+		private static final Class<?> CLIENTE_LEGADO = utils.legado.Cliente.class;
+
+		private boolean classesLegadas;
+
+		ObjectInputStreamMigracao(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			ObjectStreamClass doArquivo = super.readClassDescriptor();
+			if (!doArquivo.getName().startsWith("model.")) {
+				return doArquivo;
+			}
+			ObjectStreamClass local = ObjectStreamClass.lookup(Class.forName(doArquivo.getName()));
+			if (local != null && local.getSerialVersionUID() != doArquivo.getSerialVersionUID()
+					&& mesmosCampos(local, doArquivo)) {
+				return local;
+			}
+			return doArquivo;
+		}
+
+		/**
+		 * As versões mais antigas de PessoaFisica e PessoaJuridica tinham um campo a mais (cpf, cnpj):
+		 * são lidas pelas classes de mesmo nome em utils.legado, que se convertem nas atuais.
+		 * A superclasse model.Cliente vem logo depois no fluxo e, nesse caso, é lida pela cópia
+		 * de utils.legado; o arquivo inteiro foi gravado pela mesma versão das classes.
+		 */
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass doArquivo) throws IOException, ClassNotFoundException {
+			for (Class<?> legada : CLASSES_LEGADAS) {
+				if (doArquivo.getName().equals("model." + legada.getSimpleName())
+						&& doArquivo.getSerialVersionUID() == ObjectStreamClass.lookup(legada).getSerialVersionUID()) {
+					classesLegadas = true;
+					return legada;
+				}
+			}
+			if (classesLegadas && doArquivo.getName().equals(model.Cliente.class.getName())) {
+				return CLIENTE_LEGADO;
+			}
+			return super.resolveClass(doArquivo);
+		}
+
+		private static boolean mesmosCampos(ObjectStreamClass a, ObjectStreamClass b) {
+			ObjectStreamField[] camposA = a.getFields();
+			ObjectStreamField[] camposB = b.getFields();
+			if (camposA.length != camposB.length) {
+				return false;
+			}
+			for (int i = 0; i < camposA.length; i++) {
+				if (!camposA[i].getName().equals(camposB[i].getName())
+						|| !camposA[i].getTypeString().equals(camposB[i].getTypeString())
+						|| camposA[i].getTypeCode() != camposB[i].getTypeCode()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Buffer reaproveitado entre os registros, com acesso direto ao array interno.
+	 */
+	private static class BufferRegistro extends ByteArrayOutputStream {
+		BufferRegistro() {
+			super(256);
+		}
+
+		byte[] bytes() {
+			return buf;
 		}
 	}
 }
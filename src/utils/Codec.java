@@ -0,0 +1,18 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converte um objeto de/para o formato binário dos arquivos de dados.
+ * A versão do esquema é gravada no cabeçalho do arquivo e repassada na leitura,
+ * permitindo ler arquivos gravados por versões anteriores do codec.
+ */
+public interface Codec<T> {
+    int versao();
+
+    void escrever(DataOutput out, T valor) throws IOException;
+
+    T ler(DataInput in, int versao) throws IOException;
+}
@@ -0,0 +1,213 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.function.Function;
+import model.Aluguel;
+import model.Cliente;
+import model.Dinheiro;
+import model.PessoaFisica;
+import model.PessoaJuridica;
+import model.TipoVeiculo;
+import model.Veiculo;
+
+/**
+ * Codecs binários escritos à mão para as entidades do modelo.
+ * Formato:
+ *  - textos: int com o tamanho em bytes (-1 para null) + bytes UTF-8
+ *  - datas: long com os segundos desde a época (UTC) + int com os nanossegundos
+ *  - enums: byte com o ordinal
+ *  - valores (Dinheiro): long com os centavos; até a versão 2, BigDecimal (int escala + byte tamanho + bytes)
+ */
+public final class CodecModelo {
+    public static final int VERSAO_ESQUEMA = 1;
+    public static final int VERSAO_ALUGUEL_NORMALIZADO = 2;
+    public static final int VERSAO_ALUGUEL_CENTAVOS = 3;
+
+    private static final byte TIPO_PESSOA_FISICA = 0;
+    private static final byte TIPO_PESSOA_JURIDICA = 1;
+    private static final long DATA_NULA = Long.MIN_VALUE;
+    private static final TipoVeiculo[] TIPOS = TipoVeiculo.values();
+
+    private CodecModelo() {
+    }
+
+    public static final Codec<Cliente> CLIENTE = new Codec<>() {
+        @Override
+        public int versao() {
+            return VERSAO_ESQUEMA;
+        }
+
+        @Override
+        public void escrever(DataOutput out, Cliente cliente) throws IOException {
+            out.writeByte(cliente instanceof PessoaJuridica ? TIPO_PESSOA_JURIDICA : TIPO_PESSOA_FISICA);
+            escreverTexto(out, cliente.getDocumento());
+            escreverTexto(out, cliente.getNome());
+        }
+
+        @Override
+        public Cliente ler(DataInput in, int versao) throws IOException {
+            byte tipo = in.readByte();
+            String documento = lerTexto(in);
+            String nome = lerTexto(in);
+            return switch (tipo) {
+                case TIPO_PESSOA_FISICA -> new PessoaFisica(documento, nome);
+                case TIPO_PESSOA_JURIDICA -> new PessoaJuridica(documento, nome);
+                default -> throw new IOException("Tipo de cliente desconhecido: " + tipo);
+            };
+        }
+    };
+
+    public static final Codec<Veiculo> VEICULO = new Codec<>() {
+        @Override
+        public int versao() {
+            return VERSAO_ESQUEMA;
+        }
+
+        @Override
+        public void escrever(DataOutput out, Veiculo veiculo) throws IOException {
+            escreverTexto(out, veiculo.getPlaca());
+            escreverTexto(out, veiculo.getNome());
+            out.writeByte(veiculo.getTipo().ordinal());
+            out.writeBoolean(veiculo.isDisponivel());
+        }
+
+        @Override
+        public Veiculo ler(DataInput in, int versao) throws IOException {
+            Veiculo veiculo = new Veiculo(lerTexto(in), lerTexto(in), lerTipoVeiculo(in));
+            veiculo.setDisponivel(in.readBoolean());
+            return veiculo;
+        }
+    };
+
+    /**
+     * Codec de aluguel normalizado: grava apenas o documento do cliente e a placa do veículo.
+     * Na leitura, as chaves são resolvidas para as instâncias canônicas dos repositórios.
+     * Arquivos da versão 1 (cliente e veículo embutidos) e da versão 2 (valor em BigDecimal)
+     * continuam legíveis; o valor antigo é arredondado ao centavo (HALF_UP).
+     */
+    public static Codec<Aluguel> aluguel(Function<String, Cliente> clientePorDocumento,
+                                         Function<String, Veiculo> veiculoPorPlaca) {
+        return new Codec<>() {
+            @Override
+            public int versao() {
+                return VERSAO_ALUGUEL_CENTAVOS;
+            }
+
+            @Override
+            public void escrever(DataOutput out, Aluguel aluguel) throws IOException {
+                escreverTexto(out, aluguel.getId());
+                escreverTexto(out, aluguel.getCliente().getDocumento());
+                escreverTexto(out, aluguel.getVeiculo().getPlaca());
+                escreverDataHora(out, aluguel.getDataHoraRetirada());
+                escreverTexto(out, aluguel.getLocalRetirada());
+                escreverDataHora(out, aluguel.getDataHoraDevolucao());
+                escreverTexto(out, aluguel.getLocalDevolucao());
+                out.writeLong(aluguel.getValor().getCentavos());
+                out.writeBoolean(aluguel.isAtivo());
+            }
+
+            @Override
+            public Aluguel ler(DataInput in, int versao) throws IOException {
+                String id = lerTexto(in);
+                Cliente cliente;
+                Veiculo veiculo;
+                if (versao < VERSAO_ALUGUEL_NORMALIZADO) {
+                    Cliente embutido = CLIENTE.ler(in, versao);
+                    Veiculo embutidoVeiculo = VEICULO.ler(in, versao);
+                    cliente = Objects.requireNonNullElse(clientePorDocumento.apply(embutido.getDocumento()), embutido);
+                    veiculo = Objects.requireNonNullElse(veiculoPorPlaca.apply(embutidoVeiculo.getPlaca()), embutidoVeiculo);
+                } else {
+                    cliente = resolver(clientePorDocumento, lerTexto(in), "Cliente", id);
+                    veiculo = resolver(veiculoPorPlaca, lerTexto(in), "Veículo", id);
+                }
+                LocalDateTime retirada = lerDataHora(in);
+                String localRetirada = lerTexto(in);
+                LocalDateTime devolucao = lerDataHora(in);
+                String localDevolucao = lerTexto(in);
+                Dinheiro valor = versao < VERSAO_ALUGUEL_CENTAVOS
+                        ? Dinheiro.de(lerDecimal(in), RoundingMode.HALF_UP)
+                        : Dinheiro.deCentavos(in.readLong());
+                boolean ativo = in.readBoolean();
+                return new Aluguel(id, cliente, veiculo, retirada, localRetirada,
+                        devolucao, localDevolucao, valor, ativo);
+            }
+        };
+    }
+
+    /**
+     * Uma chave sem entidade não é um registro corrompido (o registro foi lido inteiro), e sim um
+     * arquivo de clientes ou veículos que não acompanha o de aluguéis: por isso a exceção não é
+     * IOException, que levaria o arquivo à recuperação pela geração anterior.
+     */
+    private static <T> T resolver(Function<String, T> busca, String chave, String entidade, String aluguelId) {
+        T encontrado = busca.apply(chave);
+        if (encontrado == null) {
+            throw new IllegalStateException(entidade + " " + chave + " do aluguel " + aluguelId
+                    + " não encontrado nos dados carregados (referência pendente, não corrupção do arquivo)");
+        }
+        return encontrado;
+    }
+
+    public static void escreverTexto(DataOutput out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String lerTexto(DataInput in) throws IOException {
+        int tamanho = in.readInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void escreverDataHora(DataOutput out, LocalDateTime dataHora) throws IOException {
+        if (dataHora == null) {
+            out.writeLong(DATA_NULA);
+            out.writeInt(0);
+            return;
+        }
+        out.writeLong(dataHora.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dataHora.getNano());
+    }
+
+    public static LocalDateTime lerDataHora(DataInput in) throws IOException {
+        long segundos = in.readLong();
+        int nanos = in.readInt();
+        if (segundos == DATA_NULA) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+    }
+
+    private static BigDecimal lerDecimal(DataInput in) throws IOException {
+        int escala = in.readInt();
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), escala);
+    }
+
+    private static TipoVeiculo lerTipoVeiculo(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TIPOS.length) {
+            throw new IOException("Tipo de veículo desconhecido: " + ordinal);
+        }
+        return TIPOS[ordinal];
+    }
+}
@@ -0,0 +1,210 @@
+package utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gravação agrupada dos arquivos dos repositórios em segundo plano.
+ *
+ * Os repositórios apenas marcam o arquivo como alterado; cada arquivo é regravado
+ * no máximo uma vez por intervalo, ou antes disso quando o número de alterações
+ * pendentes atinge o tamanho do lote. Todas as gravações acontecem numa única
+ * thread, fora da thread do menu.
+ *
+ * Quem precisa de durabilidade imediata chama aguardarGravacao(), que repassa as falhas de
+ * gravação; nas gravações em segundo plano, a falha é informada e o arquivo fica marcado para
+ * a próxima rodada. No encerramento (normal ou pelo shutdown hook da JVM) as alterações
+ * pendentes são gravadas; depois dele, cada alteração é gravada na própria thread que a marcou.
+ */
+public class EscritorPersistencia {
+    private final long intervaloMillis;
+    private final int tamanhoLote;
+    private final Map<String, Arquivo> arquivos = new ConcurrentHashMap<>();
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private final AtomicBoolean encerrado = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+
+    public EscritorPersistencia(long intervaloMillis, int tamanhoLote) {
+        if (intervaloMillis <= 0 || tamanhoLote <= 0) {
+            throw new IllegalArgumentException("Intervalo e tamanho do lote devem ser > 0.");
+        }
+        this.intervaloMillis = intervaloMillis;
+        this.tamanhoLote = tamanhoLote;
+        this.executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "escritor-persistencia");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra a rotina que grava um arquivo. Deve ser chamado antes de marcarAlterado().
+     */
+    public void registrar(String nomeArquivo, Runnable gravacao) {
+        arquivos.put(nomeArquivo, new Arquivo(gravacao));
+    }
+
+    public void iniciar() {
+        executor.scheduleWithFixedDelay(this::gravarPendentes, intervaloMillis, intervaloMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar, "escritor-persistencia-shutdown"));
+    }
+
+    public void marcarAlterado(String nomeArquivo) {
+        Arquivo arquivo = arquivos.get(nomeArquivo);
+        if (arquivo == null) {
+            throw new IllegalArgumentException("Arquivo não registrado: " + nomeArquivo);
+        }
+        arquivo.alterado.set(true);
+        if (encerrado.get()) {
+            gravarPendentes();
+        } else if (pendentes.incrementAndGet() >= tamanhoLote) {
+            pendentes.set(0);
+            try {
+                executor.execute(this::gravarPendentes);
+            } catch (RejectedExecutionException e) {
+                // encerrar() parou a thread entre a verificação e o agendamento
+                gravarPendentes();
+            }
+        }
+    }
+
+    /**
+     * Bloqueia até que todas as alterações marcadas antes da chamada estejam gravadas.
+     *
+     * @throws IllegalStateException se algum arquivo não pôde ser gravado (ele continua marcado)
+     *                               ou se a espera foi interrompida
+     */
+    public void aguardarGravacao() {
+        executarEAguardar(this::gravarOuFalhar);
+    }
+
+    /**
+     * Grava um único arquivo agora, mesmo que não esteja marcado, e bloqueia até o fim da
+     * gravação. Os demais arquivos marcados continuam com a gravação em segundo plano.
+     *
+     * @throws IllegalStateException se o arquivo não pôde ser gravado (ele fica marcado)
+     *                               ou se a espera foi interrompida
+     */
+    public void aguardarGravacao(String nomeArquivo) {
+        Arquivo arquivo = arquivos.get(nomeArquivo);
+        if (arquivo == null) {
+            throw new IllegalArgumentException("Arquivo não registrado: " + nomeArquivo);
+        }
+        executarEAguardar(() -> {
+            arquivo.alterado.set(true);
+            RuntimeException falha = gravarSeAlterado(nomeArquivo, arquivo);
+            if (falha != null) {
+                throw falha;
+            }
+        });
+    }
+
+    /**
+     * Roda a gravação na thread do escritor, que serializa todas as gravações; depois do
+     * encerramento, roda na thread atual.
+     */
+    private void executarEAguardar(Runnable tarefa) {
+        Future<?> gravacao;
+        try {
+            gravacao = encerrado.get() ? null : executor.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            gravacao = null;
+        }
+        if (gravacao == null) {
+            tarefa.run();
+            return;
+        }
+        try {
+            gravacao.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto aguardava a gravação dos arquivos", e);
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Para a thread de gravação e grava o que estiver pendente. Pode ser chamado mais de uma vez.
+     */
+    public void encerrar() {
+        if (!encerrado.compareAndSet(false, true)) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        gravarPendentes();
+    }
+
+    private void gravarPendentes() {
+        RuntimeException falha = gravarAlterados();
+        if (falha != null) {
+            System.err.println(falha.getMessage());
+            for (Throwable outra : falha.getSuppressed()) {
+                System.err.println(outra.getMessage());
+            }
+        }
+    }
+
+    private void gravarOuFalhar() {
+        RuntimeException falha = gravarAlterados();
+        if (falha != null) {
+            throw falha;
+        }
+    }
+
+    /**
+     * Grava os arquivos marcados e devolve a primeira falha (as demais como suprimidas), ou null.
+     */
+    private RuntimeException gravarAlterados() {
+        pendentes.set(0);
+        RuntimeException falha = null;
+        for (Map.Entry<String, Arquivo> entrada : arquivos.entrySet()) {
+            RuntimeException erro = gravarSeAlterado(entrada.getKey(), entrada.getValue());
+            if (erro == null) {
+                continue;
+            }
+            if (falha == null) {
+                falha = erro;
+            } else {
+                falha.addSuppressed(erro);
+            }
+        }
+        return falha;
+    }
+
+    private static RuntimeException gravarSeAlterado(String nomeArquivo, Arquivo arquivo) {
+        if (!arquivo.alterado.getAndSet(false)) {
+            return null;
+        }
+        try {
+            arquivo.gravacao.run();
+            return null;
+        } catch (RuntimeException e) {
+            // mantém marcado para tentar de novo na próxima rodada
+            arquivo.alterado.set(true);
+            return new IllegalStateException("Erro ao gravar " + nomeArquivo + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static class Arquivo {
+        private final Runnable gravacao;
+        private final AtomicBoolean alterado = new AtomicBoolean();
+
+        Arquivo(Runnable gravacao) {
+            this.gravacao = gravacao;
+        }
+    }
+}
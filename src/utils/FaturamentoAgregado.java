@@ -0,0 +1,285 @@
+package utils;
+
+import functional.TipoClienteStrategy;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import model.Aluguel;
+import model.Dinheiro;
+import model.TipoVeiculo;
+
+/**
+ * Faturamento dos aluguéis finalizados, mantido de forma incremental: cada aluguel entra
+ * (ou sai) das somas uma única vez, quando é finalizado, em vez de a cada consulta.
+ *
+ * Há uma soma geral e uma por dia de devolução; cada soma traz quantidade, total,
+ * total por tipo de veículo e por tipo de cliente (PF/PJ). Consultas ao geral são O(1);
+ * um período soma apenas os dias do intervalo. Os valores são somados em centavos (long),
+ * com verificação de estouro, direto nos acumuladores: a atualização não cria objetos além
+ * da parcela guardada de cada aluguel. As consultas devolvem um Resumo imutável.
+ *
+ * Alterações e consultas passam pelo monitor do agregado; as consultas só copiam os acumuladores.
+ */
+public class FaturamentoAgregado {
+    private static final TipoVeiculo[] TIPOS_VEICULO = TipoVeiculo.values();
+    private static final String[] TIPOS_CLIENTE = {"PF", "PJ"};
+
+    // O que cada aluguel finalizado somou, para retirar a parcela antiga quando ele mudar
+    private final Map<String, Parcela> parcelas = new HashMap<>();
+    private final NavigableMap<LocalDate, Soma> porDia = new TreeMap<>();
+    private final Soma geral = new Soma();
+
+    /**
+     * Atualiza as somas com o estado atual do aluguel: retira o que ele havia somado
+     * e, se estiver finalizado, soma o valor atual.
+     *
+     * @throws ArithmeticException se alguma soma estourar o long (as somas não mudam)
+     */
+    public synchronized void contabilizar(Aluguel aluguel) {
+        Parcela nova = aluguel.isAtivo() ? null : new Parcela(aluguel);
+        Parcela anterior = parcelas.get(aluguel.getId());
+        if (anterior != null) {
+            aplicar(anterior, -1);
+        }
+        if (nova != null) {
+            try {
+                aplicar(nova, 1);
+            } catch (ArithmeticException e) {
+                if (anterior != null) {
+                    aplicar(anterior, 1);
+                }
+                throw e;
+            }
+            parcelas.put(aluguel.getId(), nova);
+        } else {
+            parcelas.remove(aluguel.getId());
+        }
+    }
+
+    public synchronized void limpar() {
+        parcelas.clear();
+        porDia.clear();
+        geral.zerar();
+    }
+
+    public synchronized Resumo getGeral() {
+        return geral.resumo();
+    }
+
+    /**
+     * Soma dos dias de devolução entre as datas informadas (inclusive).
+     */
+    public synchronized Resumo somarDias(LocalDate inicio, LocalDate fim) {
+        if (inicio.isAfter(fim)) {
+            return Resumo.VAZIO;
+        }
+        Soma soma = new Soma();
+        for (Soma dia : porDia.subMap(inicio, true, fim, true).values()) {
+            soma.somar(dia);
+        }
+        return soma.resumo();
+    }
+
+    /**
+     * Total por dia de devolução, em ordem de data, apenas dos dias com devoluções.
+     */
+    public synchronized Map<LocalDate, Dinheiro> totalPorDia(LocalDate inicio, LocalDate fim) {
+        Map<LocalDate, Dinheiro> totais = new LinkedHashMap<>();
+        if (!inicio.isAfter(fim)) {
+            porDia.subMap(inicio, true, fim, true).forEach((dia, soma) -> totais.put(dia, Dinheiro.deCentavos(soma.centavos)));
+        }
+        return totais;
+    }
+
+    /**
+     * Soma a parcela no geral e no dia; se estourar, nenhuma das duas muda.
+     */
+    private void aplicar(Parcela parcela, int sinal) {
+        Soma dia = porDia.get(parcela.dia);
+        if (dia == null) {
+            dia = new Soma();
+        }
+        geral.somar(parcela, sinal);
+        try {
+            dia.somar(parcela, sinal);
+        } catch (ArithmeticException e) {
+            geral.somar(parcela, -sinal);
+            throw e;
+        }
+        if (dia.quantidade == 0) {
+            porDia.remove(parcela.dia);
+        } else {
+            porDia.put(parcela.dia, dia);
+        }
+    }
+
+    private static int indiceTipoCliente(Aluguel aluguel) {
+        return TipoClienteStrategy.EH_PESSOA_FISICA.test(aluguel.getCliente()) ? 0 : 1;
+    }
+
+    /**
+     * Contribuição de um aluguel finalizado às somas.
+     */
+    private static final class Parcela {
+        private final LocalDate dia;
+        private final int tipoVeiculo;
+        private final int tipoCliente;
+        private final long centavos;
+
+        private Parcela(Aluguel aluguel) {
+            this.dia = aluguel.getDataHoraDevolucao().toLocalDate();
+            this.tipoVeiculo = aluguel.getVeiculo().getTipo().ordinal();
+            this.tipoCliente = indiceTipoCliente(aluguel);
+            this.centavos = aluguel.getValor().getCentavos();
+        }
+    }
+
+    /**
+     * Acumuladores alterados no lugar. Cada operação calcula todos os novos valores antes de
+     * gravá-los: se algum estourar, a soma fica como estava.
+     */
+    private static final class Soma {
+        private long quantidade;
+        private long centavos;
+        private final long[] quantidadePorTipoVeiculo = new long[TIPOS_VEICULO.length];
+        private final long[] centavosPorTipoVeiculo = new long[TIPOS_VEICULO.length];
+        private final long[] quantidadePorTipoCliente = new long[TIPOS_CLIENTE.length];
+        private final long[] centavosPorTipoCliente = new long[TIPOS_CLIENTE.length];
+
+        private void somar(Parcela parcela, int sinal) {
+            long valor = Math.multiplyExact(parcela.centavos, sinal);
+            long novaQuantidade = Math.addExact(quantidade, sinal);
+            long novosCentavos = Math.addExact(centavos, valor);
+            long qtdVeiculo = Math.addExact(quantidadePorTipoVeiculo[parcela.tipoVeiculo], sinal);
+            long valVeiculo = Math.addExact(centavosPorTipoVeiculo[parcela.tipoVeiculo], valor);
+            long qtdCliente = Math.addExact(quantidadePorTipoCliente[parcela.tipoCliente], sinal);
+            long valCliente = Math.addExact(centavosPorTipoCliente[parcela.tipoCliente], valor);
+            quantidade = novaQuantidade;
+            centavos = novosCentavos;
+            quantidadePorTipoVeiculo[parcela.tipoVeiculo] = qtdVeiculo;
+            centavosPorTipoVeiculo[parcela.tipoVeiculo] = valVeiculo;
+            quantidadePorTipoCliente[parcela.tipoCliente] = qtdCliente;
+            centavosPorTipoCliente[parcela.tipoCliente] = valCliente;
+        }
+
+        /**
+         * Só para somas temporárias (consultas de período): se estourar, a soma fica inválida.
+         */
+        private void somar(Soma outra) {
+            quantidade = Math.addExact(quantidade, outra.quantidade);
+            centavos = Math.addExact(centavos, outra.centavos);
+            somarNoLugar(quantidadePorTipoVeiculo, outra.quantidadePorTipoVeiculo);
+            somarNoLugar(centavosPorTipoVeiculo, outra.centavosPorTipoVeiculo);
+            somarNoLugar(quantidadePorTipoCliente, outra.quantidadePorTipoCliente);
+            somarNoLugar(centavosPorTipoCliente, outra.centavosPorTipoCliente);
+        }
+
+        private void zerar() {
+            quantidade = 0;
+            centavos = 0;
+            Arrays.fill(quantidadePorTipoVeiculo, 0);
+            Arrays.fill(centavosPorTipoVeiculo, 0);
+            Arrays.fill(quantidadePorTipoCliente, 0);
+            Arrays.fill(centavosPorTipoCliente, 0);
+        }
+
+        private Resumo resumo() {
+            return new Resumo(quantidade, centavos,
+                    quantidadePorTipoVeiculo.clone(), centavosPorTipoVeiculo.clone(),
+                    quantidadePorTipoCliente.clone(), centavosPorTipoCliente.clone());
+        }
+
+        private static void somarNoLugar(long[] destino, long[] parcelas) {
+            for (int i = 0; i < destino.length; i++) {
+                destino[i] = Math.addExact(destino[i], parcelas[i]);
+            }
+        }
+    }
+
+    /**
+     * Quantidade e valores de um conjunto de aluguéis finalizados. Imutável.
+     */
+    public static final class Resumo {
+        public static final Resumo VAZIO = new Resumo(0, 0,
+                new long[TIPOS_VEICULO.length], new long[TIPOS_VEICULO.length],
+                new long[TIPOS_CLIENTE.length], new long[TIPOS_CLIENTE.length]);
+
+        private final long quantidade;
+        private final long centavos;
+        private final long[] quantidadePorTipoVeiculo;
+        private final long[] centavosPorTipoVeiculo;
+        private final long[] quantidadePorTipoCliente;
+        private final long[] centavosPorTipoCliente;
+
+        private Resumo(long quantidade, long centavos,
+                       long[] quantidadePorTipoVeiculo, long[] centavosPorTipoVeiculo,
+                       long[] quantidadePorTipoCliente, long[] centavosPorTipoCliente) {
+            this.quantidade = quantidade;
+            this.centavos = centavos;
+            this.quantidadePorTipoVeiculo = quantidadePorTipoVeiculo;
+            this.centavosPorTipoVeiculo = centavosPorTipoVeiculo;
+            this.quantidadePorTipoCliente = quantidadePorTipoCliente;
+            this.centavosPorTipoCliente = centavosPorTipoCliente;
+        }
+
+        /**
+         * Resumo com um aluguel finalizado a mais, fora dos agregados (ex.: bordas de um período).
+         */
+        public Resumo mais(Aluguel aluguel) {
+            return somar(new Parcela(aluguel), 1);
+        }
+
+        private Resumo somar(Parcela parcela, int sinal) {
+            long valor = Math.multiplyExact(parcela.centavos, sinal);
+            long[] qtdVeiculo = quantidadePorTipoVeiculo.clone();
+            long[] valVeiculo = centavosPorTipoVeiculo.clone();
+            long[] qtdCliente = quantidadePorTipoCliente.clone();
+            long[] valCliente = centavosPorTipoCliente.clone();
+            qtdVeiculo[parcela.tipoVeiculo] = Math.addExact(qtdVeiculo[parcela.tipoVeiculo], sinal);
+            valVeiculo[parcela.tipoVeiculo] = Math.addExact(valVeiculo[parcela.tipoVeiculo], valor);
+            qtdCliente[parcela.tipoCliente] = Math.addExact(qtdCliente[parcela.tipoCliente], sinal);
+            valCliente[parcela.tipoCliente] = Math.addExact(valCliente[parcela.tipoCliente], valor);
+            return new Resumo(Math.addExact(quantidade, sinal), Math.addExact(centavos, valor),
+                    qtdVeiculo, valVeiculo, qtdCliente, valCliente);
+        }
+
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        public Dinheiro getTotal() {
+            return Dinheiro.deCentavos(centavos);
+        }
+
+        /**
+         * Total por tipo de veículo, só dos tipos com aluguéis finalizados.
+         */
+        public Map<TipoVeiculo, Dinheiro> getPorTipoVeiculo() {
+            Map<TipoVeiculo, Dinheiro> mapa = new EnumMap<>(TipoVeiculo.class);
+            for (int i = 0; i < TIPOS_VEICULO.length; i++) {
+                if (quantidadePorTipoVeiculo[i] > 0) {
+                    mapa.put(TIPOS_VEICULO[i], Dinheiro.deCentavos(centavosPorTipoVeiculo[i]));
+                }
+            }
+            return mapa;
+        }
+
+        /**
+         * Total por tipo de cliente ("PF"/"PJ"), só dos tipos com aluguéis finalizados.
+         */
+        public Map<String, Dinheiro> getPorTipoCliente() {
+            Map<String, Dinheiro> mapa = new LinkedHashMap<>();
+            for (int i = 0; i < TIPOS_CLIENTE.length; i++) {
+                if (quantidadePorTipoCliente[i] > 0) {
+                    mapa.put(TIPOS_CLIENTE[i], Dinheiro.deCentavos(centavosPorTipoCliente[i]));
+                }
+            }
+            return mapa;
+        }
+    }
+}
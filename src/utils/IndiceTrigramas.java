@@ -0,0 +1,201 @@
+package utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas para busca por trecho de nome.
+ *
+ * Os nomes são normalizados uma única vez na inserção (minúsculas, sem acentos).
+ * Na busca, as listas de postagem dos trigramas do termo são intersectadas e
+ * apenas os candidatos resultantes são conferidos com contains().
+ * Termos com menos de 3 caracteres percorrem os nomes já normalizados.
+ *
+ * Os resultados saem na ordem de inserção dos itens.
+ * Pode ser usado por várias threads: buscas concorrentes compartilham uma trava de leitura.
+ */
+public class IndiceTrigramas<T> {
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final int[] VAZIO = new int[0];
+
+    private final Map<T, Integer> idPorItem = new HashMap<>();
+    private final List<T> itens = new ArrayList<>();
+    private final List<String> nomes = new ArrayList<>();
+    private final Map<Long, Postagens> postagens = new HashMap<>();
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+    /**
+     * Indexa o item pelo texto informado. Se o item já estiver indexado,
+     * mantém a posição original e passa a usar o novo texto.
+     */
+    public void adicionar(T item, String texto) {
+        if (texto == null) {
+            remover(item);
+            return;
+        }
+        String normalizado = normalizar(texto);
+        trava.writeLock().lock();
+        try {
+            adicionarNormalizado(item, normalizado);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void adicionarNormalizado(T item, String normalizado) {
+        Integer id = idPorItem.get(item);
+        if (id == null) {
+            id = itens.size();
+            idPorItem.put(item, id);
+            itens.add(item);
+            nomes.add(normalizado);
+        } else {
+            itens.set(id, item);
+            if (normalizado.equals(nomes.get(id))) {
+                return;
+            }
+            nomes.set(id, normalizado);
+        }
+        for (int i = 0; i + 3 <= normalizado.length(); i++) {
+            postagens.computeIfAbsent(trigrama(normalizado, i), k -> new Postagens()).adicionar(id);
+        }
+    }
+
+    /**
+     * Remove o item; as postagens antigas são descartadas na conferência dos candidatos.
+     */
+    public void remover(T item) {
+        trava.writeLock().lock();
+        try {
+            Integer id = idPorItem.remove(item);
+            if (id != null) {
+                itens.set(id, null);
+                nomes.set(id, null);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public void limpar() {
+        trava.writeLock().lock();
+        try {
+            idPorItem.clear();
+            itens.clear();
+            nomes.clear();
+            postagens.clear();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public List<T> buscar(String termo) {
+        String t = normalizar(termo == null ? "" : termo);
+        trava.readLock().lock();
+        try {
+            return buscarNormalizado(t);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private List<T> buscarNormalizado(String t) {
+        List<T> resultado = new ArrayList<>();
+
+        if (t.length() < 3) {
+            for (int id = 0; id < itens.size(); id++) {
+                String nome = nomes.get(id);
+                if (nome != null && nome.contains(t)) {
+                    resultado.add(itens.get(id));
+                }
+            }
+            return resultado;
+        }
+
+        List<Postagens> listas = new ArrayList<>();
+        for (int i = 0; i + 3 <= t.length(); i++) {
+            Postagens lista = postagens.get(trigrama(t, i));
+            if (lista == null) {
+                return resultado;
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(p -> p.tamanho));
+
+        int[] candidatos = Arrays.copyOf(listas.get(0).ids, listas.get(0).tamanho);
+        int total = candidatos.length;
+        for (int i = 1; i < listas.size() && total > 0; i++) {
+            total = listas.get(i).intersectar(candidatos, total);
+        }
+
+        for (int i = 0; i < total; i++) {
+            String nome = nomes.get(candidatos[i]);
+            if (nome != null && nome.contains(t)) {
+                resultado.add(itens.get(candidatos[i]));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Minúsculas e sem acentos: "João" e "joao" são equivalentes na busca.
+     */
+    public static String normalizar(String texto) {
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigrama(String texto, int inicio) {
+        return ((long) texto.charAt(inicio) << 32)
+                | ((long) texto.charAt(inicio + 1) << 16)
+                | texto.charAt(inicio + 2);
+    }
+
+    /**
+     * Lista de IDs ordenada e sem repetição.
+     */
+    private static class Postagens {
+        private int[] ids = VAZIO;
+        private int tamanho;
+
+        void adicionar(int id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao >= 0) {
+                return;
+            }
+            posicao = -posicao - 1;
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, tamanho * 2));
+            }
+            System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+            ids[posicao] = id;
+            tamanho++;
+        }
+
+        /**
+         * Mantém em candidatos[0..total) apenas os IDs presentes nesta lista; retorna o novo total.
+         */
+        int intersectar(int[] candidatos, int total) {
+            int mantidos = 0;
+            int j = 0;
+            for (int i = 0; i < total && j < tamanho; i++) {
+                while (j < tamanho && ids[j] < candidatos[i]) {
+                    j++;
+                }
+                if (j < tamanho && ids[j] == candidatos[i]) {
+                    candidatos[mantidos++] = candidatos[i];
+                }
+            }
+            return mantidos;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package utils;
+
+import functional.FormatadorRelatorio;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import model.Dinheiro;
+
+/**
+ * Modelo de texto compilado uma única vez e aplicado a muitos valores (linhas de relatório, recibos).
+ *
+ * O padrão tem texto literal e campos {nome} ou {nome:largura}; largura positiva alinha à direita
+ * e negativa à esquerda, como %5s e %-5s. "\n" vira a quebra de linha do sistema.
+ * Cada campo é associado a uma função do valor; a compilação recusa campos sem função
+ * e funções sem campo. Na escrita, o padrão não é reinterpretado: os trechos já separados
+ * vão direto para a SaidaRelatorio.
+ *
+ * <pre>
+ * ModeloRelatorio&lt;Posicao&gt; linha = ModeloRelatorio.&lt;Posicao&gt;de("{posicao:2}. {nome:-50} {total:3}\n")
+ *         .inteiro("posicao", Posicao::getPosicao)
+ *         .texto("nome", Posicao::getNome)
+ *         .inteiro("total", Posicao::getQuantidade)
+ *         .compilar();
+ * </pre>
+ */
+public final class ModeloRelatorio<T> implements FormatadorRelatorio<T> {
+    private final List<Trecho<T>> trechos;
+
+    private ModeloRelatorio(List<Trecho<T>> trechos) {
+        this.trechos = trechos;
+    }
+
+    public static <T> Construtor<T> de(String padrao) {
+        return new Construtor<>(padrao);
+    }
+
+    public void escrever(SaidaRelatorio saida, T valor) throws IOException {
+        for (Trecho<T> trecho : trechos) {
+            trecho.escrever(saida, valor);
+        }
+    }
+
+    /**
+     * O modelo aplicado ao valor, como String (para exibição no console).
+     */
+    @Override
+    public String formatar(T valor) {
+        StringBuilder texto = new StringBuilder(128);
+        try (SaidaRelatorio saida = SaidaRelatorio.emMemoria(texto)) {
+            escrever(saida, valor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return texto.toString();
+    }
+
+    @FunctionalInterface
+    private interface Trecho<T> {
+        void escrever(SaidaRelatorio saida, T valor) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Campo<T> {
+        void escrever(SaidaRelatorio saida, T valor, int largura) throws IOException;
+    }
+
+    public static final class Construtor<T> {
+        private final String padrao;
+        private final Map<String, Campo<T>> campos = new HashMap<>();
+
+        private Construtor(String padrao) {
+            this.padrao = padrao;
+        }
+
+        /**
+         * Campo de texto; valores que não são CharSequence usam toString() (como %s).
+         */
+        public Construtor<T> texto(String nome, Function<T, ?> valor) {
+            return campo(nome, (saida, item, largura) -> {
+                Object texto = valor.apply(item);
+                saida.texto(texto == null || texto instanceof CharSequence
+                        ? (CharSequence) texto : texto.toString(), largura);
+            });
+        }
+
+        public Construtor<T> inteiro(String nome, ToLongFunction<T> valor) {
+            return campo(nome, (saida, item, largura) -> saida.inteiro(valor.applyAsLong(item), largura));
+        }
+
+        /**
+         * Valor em reais com duas casas, escrito a partir dos centavos.
+         */
+        public Construtor<T> dinheiro(String nome, Function<T, Dinheiro> valor) {
+            return campo(nome, (saida, item, largura) -> saida.dinheiro(valor.apply(item), largura));
+        }
+
+        public Construtor<T> dataHora(String nome, DateTimeFormatter formato, Function<T, ? extends TemporalAccessor> valor) {
+            return campo(nome, (saida, item, largura) -> saida.dataHora(valor.apply(item), formato, largura));
+        }
+
+        private Construtor<T> campo(String nome, Campo<T> campo) {
+            if (campos.put(nome, campo) != null) {
+                throw new IllegalArgumentException("Campo repetido no modelo: " + nome);
+            }
+            return this;
+        }
+
+        /**
+         * Separa o padrão em trechos literais, quebras de linha e campos.
+         *
+         * @throws IllegalArgumentException se o padrão for inválido ou os campos não baterem com as funções
+         */
+        public ModeloRelatorio<T> compilar() {
+            List<Trecho<T>> trechos = new ArrayList<>();
+            Set<String> usados = new HashSet<>();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < padrao.length()) {
+                char c = padrao.charAt(i);
+                if (c == '\n') {
+                    adicionarLiteral(trechos, literal);
+                    trechos.add((saida, valor) -> saida.novaLinha());
+                    i++;
+                } else if (c == '{') {
+                    int fim = padrao.indexOf('}', i);
+                    if (fim < 0) {
+                        throw new IllegalArgumentException("Campo sem '}' na posição " + i + " do modelo");
+                    }
+                    adicionarLiteral(trechos, literal);
+                    trechos.add(compilarCampo(padrao.substring(i + 1, fim), usados));
+                    i = fim + 1;
+                } else {
+                    literal.append(c);
+                    i++;
+                }
+            }
+            adicionarLiteral(trechos, literal);
+
+            Set<String> semUso = new HashSet<>(campos.keySet());
+            semUso.removeAll(usados);
+            if (!semUso.isEmpty()) {
+                throw new IllegalArgumentException("Campos sem uso no modelo: " + semUso);
+            }
+            return new ModeloRelatorio<>(List.copyOf(trechos));
+        }
+
+        private Trecho<T> compilarCampo(String definicao, Set<String> usados) {
+            int separador = definicao.indexOf(':');
+            String nome = separador < 0 ? definicao : definicao.substring(0, separador);
+            int largura;
+            try {
+                largura = separador < 0 ? 0 : Integer.parseInt(definicao.substring(separador + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Largura inválida no campo {" + definicao + "}");
+            }
+            Campo<T> campo = campos.get(nome);
+            if (campo == null) {
+                throw new IllegalArgumentException("Campo sem valor no modelo: " + nome);
+            }
+            usados.add(nome);
+            return (saida, valor) -> campo.escrever(saida, valor, largura);
+        }
+
+        private static <T> void adicionarLiteral(List<Trecho<T>> trechos, StringBuilder literal) {
+            if (literal.length() > 0) {
+                String texto = literal.toString();
+                trechos.add((saida, valor) -> saida.append(texto));
+                literal.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Página de resultados da paginação por cursor (keyset).
+ * O cursor é opaco para quem chama: basta repassá-lo para obter a próxima página.
+ * Quando não há mais itens, o próximo cursor é null.
+ */
+public class Pagina<T> {
+    private final List<T> itens;
+    private final String proximoCursor;
+
+    public Pagina(List<T> itens, String proximoCursor) {
+        this.itens = itens;
+        this.proximoCursor = proximoCursor;
+    }
+
+    public List<T> getItens() {
+        return itens;
+    }
+
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+
+    public boolean temProxima() {
+        return proximoCursor != null;
+    }
+
+    /**
+     * Monta uma página a partir de um índice ordenado, posicionando direto na chave
+     * seguinte à do cursor (sem reordenar nem pular itens).
+     *
+     * @param ordenados índice já na ordem da paginação
+     * @param aPartirDe chave do último item da página anterior (exclusiva), ou null para a primeira página
+     * @param filtro condição que os itens da página devem atender
+     * @param tamanhoPagina quantidade máxima de itens
+     * @param chaveParaCursor converte a chave do último item no texto do cursor
+     */
+    public static <K, T> Pagina<T> deIndice(NavigableMap<K, T> ordenados, K aPartirDe, Predicate<T> filtro,
+                                           int tamanhoPagina, Function<K, String> chaveParaCursor) {
+        if (tamanhoPagina <= 0) {
+            throw new IllegalArgumentException("Tamanho da página deve ser > 0.");
+        }
+        NavigableMap<K, T> restantes = aPartirDe == null ? ordenados : ordenados.tailMap(aPartirDe, false);
+        List<T> itens = new ArrayList<>(tamanhoPagina);
+        K ultimaChave = null;
+        Iterator<Map.Entry<K, T>> it = restantes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, T> entrada = it.next();
+            if (!filtro.test(entrada.getValue())) {
+                continue;
+            }
+            if (itens.size() == tamanhoPagina) {
+                return new Pagina<>(itens, codificarCursor(chaveParaCursor.apply(ultimaChave)));
+            }
+            itens.add(entrada.getValue());
+            ultimaChave = entrada.getKey();
+        }
+        return new Pagina<>(itens, null);
+    }
+
+    public static String codificarCursor(String chave) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(chave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodificarCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Contadores por chave (ex.: aluguéis por placa), incrementados a cada ocorrência,
+ * e consulta dos maiores sem ordenar todas as chaves.
+ *
+ * maiores(k) percorre os contadores com um heap limitado a k elementos: O(n log k),
+ * independente do número de ocorrências já contadas. Empates ficam em ordem crescente de chave,
+ * e a posição de cada item vem da própria consulta.
+ *
+ * Incrementos concorrentes são seguros; uma consulta simultânea a incrementos vê cada
+ * contador com o valor do momento em que foi lido.
+ */
+public class Ranking<K extends Comparable<K>> {
+    private final Map<K, AtomicLong> contagens = new ConcurrentHashMap<>();
+
+    public void incrementar(K chave) {
+        contagens.computeIfAbsent(chave, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long contar(K chave) {
+        AtomicLong contagem = contagens.get(chave);
+        return contagem == null ? 0 : contagem.get();
+    }
+
+    /**
+     * Quantidade de chaves com pelo menos uma ocorrência.
+     */
+    public int tamanho() {
+        return contagens.size();
+    }
+
+    public void limpar() {
+        contagens.clear();
+    }
+
+    /**
+     * As k chaves com mais ocorrências, da primeira posição em diante.
+     */
+    public List<Posicao<K>> maiores(int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Comparator<Posicao<K>> ordem = Comparator.<Posicao<K>>comparingLong(Posicao::getQuantidade).reversed()
+                .thenComparing(Posicao::getItem);
+        // o pior dos k melhores fica no topo do heap, pronto para ser substituído
+        PriorityQueue<Posicao<K>> heap = new PriorityQueue<>(Math.min(k, Math.max(1, contagens.size())), ordem.reversed());
+        for (Map.Entry<K, AtomicLong> entrada : contagens.entrySet()) {
+            Posicao<K> candidata = new Posicao<>(0, entrada.getKey(), entrada.getValue().get());
+            if (heap.size() < k) {
+                heap.add(candidata);
+            } else if (ordem.compare(candidata, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidata);
+            }
+        }
+
+        List<Posicao<K>> melhores = new ArrayList<>(heap);
+        melhores.sort(ordem);
+        List<Posicao<K>> resultado = new ArrayList<>(melhores.size());
+        for (int i = 0; i < melhores.size(); i++) {
+            Posicao<K> posicao = melhores.get(i);
+            resultado.add(new Posicao<>(i + 1, posicao.getItem(), posicao.getQuantidade()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Uma linha do ranking: posição (a partir de 1), item e quantidade de ocorrências.
+     */
+    public static final class Posicao<T> {
+        private final int posicao;
+        private final T item;
+        private final long quantidade;
+
+        public Posicao(int posicao, T item, long quantidade) {
+            this.posicao = posicao;
+            this.item = item;
+            this.quantidade = quantidade;
+        }
+
+        public int getPosicao() {
+            return posicao;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        /**
+         * A mesma posição, com o item convertido (ex.: placa para o veículo).
+         */
+        public <R> Posicao<R> converter(Function<T, R> conversor) {
+            return new Posicao<>(posicao, conversor.apply(item), quantidade);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import model.Dinheiro;
+
+/**
+ * Saída de texto dos relatórios, gravada direto no canal do arquivo.
+ *
+ * Os caracteres vão para um buffer e são codificados em UTF-8 para outro, que é escrito no
+ * canal quando enche. Os buffers vêm de um pool compartilhado: cada saída pega um conjunto ao
+ * abrir e o devolve ao fechar, então são reaproveitados entre relatórios mesmo com cada um
+ * numa thread virtual própria. A memória usada não depende do tamanho do relatório.
+ * Inteiros, valores e datas são escritos sem criar Strings intermediárias; valores em
+ * Dinheiro vão direto dos centavos.
+ */
+public class SaidaRelatorio implements Appendable, Closeable {
+    private static final int TAMANHO_BUFFER = 8192;
+    private static final String QUEBRA_LINHA = System.lineSeparator();
+    // Conjuntos livres; além deste limite, os devolvidos ficam para o coletor de lixo
+    private static final BlockingQueue<Buffers> LIVRES = new ArrayBlockingQueue<>(
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final WritableByteChannel canal;
+    private final StringBuilder memoria;
+    private final Buffers buffers;
+    private final CharBuffer caracteres;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean fechada;
+
+    /**
+     * Escreve no canal informado, que é fechado junto com a saída.
+     */
+    public SaidaRelatorio(WritableByteChannel canal) {
+        this(canal, null);
+    }
+
+    private SaidaRelatorio(WritableByteChannel canal, StringBuilder memoria) {
+        this.canal = canal;
+        this.memoria = memoria;
+        Buffers livres = LIVRES.poll();
+        this.buffers = livres != null ? livres : new Buffers();
+        this.caracteres = buffers.caracteres.clear();
+        this.bytes = buffers.bytes.clear();
+    }
+
+    /**
+     * Cria (ou substitui) o arquivo e escreve nele.
+     */
+    public static SaidaRelatorio abrir(Path arquivo) throws IOException {
+        return new SaidaRelatorio(FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Saída em memória, para montar textos curtos com os mesmos modelos (ex.: uma linha no console).
+     */
+    static SaidaRelatorio emMemoria(StringBuilder destino) {
+        return new SaidaRelatorio(null, destino);
+    }
+
+    @Override
+    public SaidaRelatorio append(char c) throws IOException {
+        if (!caracteres.hasRemaining()) {
+            esvaziar(false);
+        }
+        caracteres.put(c);
+        return this;
+    }
+
+    @Override
+    public SaidaRelatorio append(CharSequence texto) throws IOException {
+        CharSequence valor = texto == null ? "null" : texto;
+        return append(valor, 0, valor.length());
+    }
+
+    @Override
+    public SaidaRelatorio append(CharSequence texto, int inicio, int fim) throws IOException {
+        if (texto == null) {
+            return append("null", inicio, fim);
+        }
+        int posicao = inicio;
+        while (posicao < fim) {
+            if (!caracteres.hasRemaining()) {
+                esvaziar(false);
+            }
+            int quantidade = Math.min(fim - posicao, caracteres.remaining());
+            if (texto instanceof String s) {
+                s.getChars(posicao, posicao + quantidade, caracteres.array(),
+                        caracteres.arrayOffset() + caracteres.position());
+                caracteres.position(caracteres.position() + quantidade);
+            } else {
+                for (int i = 0; i < quantidade; i++) {
+                    caracteres.put(texto.charAt(posicao + i));
+                }
+            }
+            posicao += quantidade;
+        }
+        return this;
+    }
+
+    public SaidaRelatorio novaLinha() throws IOException {
+        return append(QUEBRA_LINHA);
+    }
+
+    /**
+     * Repete o caractere (ex.: linhas separadoras), sem montar a String.
+     */
+    public SaidaRelatorio repetir(char c, int vezes) throws IOException {
+        for (int i = 0; i < vezes; i++) {
+            append(c);
+        }
+        return this;
+    }
+
+    /**
+     * Texto alinhado em largura mínima: positiva à direita, negativa à esquerda (como %5s e %-5s).
+     */
+    public SaidaRelatorio texto(CharSequence texto, int largura) throws IOException {
+        CharSequence valor = texto == null ? "null" : texto;
+        int espacos = Math.abs(largura) - valor.length();
+        if (largura > 0) {
+            repetir(' ', espacos);
+        }
+        append(valor);
+        if (largura < 0) {
+            repetir(' ', espacos);
+        }
+        return this;
+    }
+
+    /**
+     * Inteiro em base 10 com largura mínima (como %3d), sem alocar.
+     */
+    public SaidaRelatorio inteiro(long valor, int largura) throws IOException {
+        char[] digitos = buffers.digitos;
+        int posicao = digitos.length;
+        long resto = valor;
+        do {
+            digitos[--posicao] = (char) ('0' + Math.abs(resto % 10));
+            resto /= 10;
+        } while (resto != 0);
+        if (valor < 0) {
+            digitos[--posicao] = '-';
+        }
+        int tamanho = digitos.length - posicao;
+        if (largura > 0) {
+            repetir(' ', largura - tamanho);
+        }
+        for (int i = posicao; i < digitos.length; i++) {
+            append(digitos[i]);
+        }
+        if (largura < 0) {
+            repetir(' ', -largura - tamanho);
+        }
+        return this;
+    }
+
+    /**
+     * Valor em reais com duas casas (como %.2f, no locale padrão), escrito direto dos centavos, sem alocar.
+     */
+    public SaidaRelatorio dinheiro(Dinheiro valor, int largura) throws IOException {
+        if (valor == null) {
+            return texto(null, largura);
+        }
+        long centavos = valor.getCentavos();
+        char[] digitos = buffers.digitos;
+        int posicao = digitos.length;
+        long resto = centavos;
+        for (int casa = 0; casa < 2; casa++) {
+            digitos[--posicao] = (char) ('0' + Math.abs(resto % 10));
+            resto /= 10;
+        }
+        digitos[--posicao] = buffers.separadorDecimal;
+        do {
+            digitos[--posicao] = (char) ('0' + Math.abs(resto % 10));
+            resto /= 10;
+        } while (resto != 0);
+        if (centavos < 0) {
+            digitos[--posicao] = '-';
+        }
+        int tamanho = digitos.length - posicao;
+        if (largura > 0) {
+            repetir(' ', largura - tamanho);
+        }
+        for (int i = posicao; i < digitos.length; i++) {
+            append(digitos[i]);
+        }
+        if (largura < 0) {
+            repetir(' ', -largura - tamanho);
+        }
+        return this;
+    }
+
+    /**
+     * Data/hora no formato informado.
+     */
+    public SaidaRelatorio dataHora(TemporalAccessor valor, DateTimeFormatter formato, int largura) throws IOException {
+        if (valor == null) {
+            return texto(null, largura);
+        }
+        StringBuilder rascunho = buffers.rascunhoData;
+        rascunho.setLength(0);
+        formato.formatTo(valor, rascunho);
+        return texto(rascunho, largura);
+    }
+
+    private void esvaziar(boolean fim) throws IOException {
+        caracteres.flip();
+        if (memoria != null) {
+            memoria.append(caracteres);
+            caracteres.clear();
+            return;
+        }
+        while (true) {
+            CoderResult resultado = codificador.encode(caracteres, bytes, fim);
+            if (resultado.isOverflow()) {
+                escreverBytes();
+                continue;
+            }
+            break;
+        }
+        if (fim) {
+            while (codificador.flush(bytes).isOverflow()) {
+                escreverBytes();
+            }
+        }
+        escreverBytes();
+        caracteres.compact();
+    }
+
+    private void escreverBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha o canal. Os buffers voltam para o pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechada) {
+            return;
+        }
+        fechada = true;
+        try {
+            esvaziar(true);
+        } finally {
+            LIVRES.offer(buffers);
+            if (canal != null) {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Buffers reaproveitados pelas saídas, um conjunto por saída aberta.
+     */
+    private static final class Buffers {
+        private final CharBuffer caracteres = CharBuffer.allocate(TAMANHO_BUFFER);
+        private final ByteBuffer bytes = ByteBuffer.allocate(TAMANHO_BUFFER * 3);
+        // Cabe um long com sinal e, nos valores, o separador decimal
+        private final char[] digitos = new char[24];
+        private final StringBuilder rascunhoData = new StringBuilder(32);
+        private final char separadorDecimal = DecimalFormatSymbols
+                .getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+    }
+}
@@ -0,0 +1,286 @@
+package utils;
+
+import functional.CalculadoraDesconto;
+import functional.TipoClienteStrategy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import model.Cliente;
+import model.TipoVeiculo;
+
+/**
+ * Regras de desconto compiladas numa tabela de decisão plana.
+ *
+ * Cada linha do texto é uma regra: condições no formato chave=valor (ou chave>=n) separadas
+ * por espaços, e o desconto. Condição omitida vale para qualquer valor. Exemplo:
+ * <pre>
+ * cliente=PJ veiculo=SUV,MEDIO dias>3 desconto=10%
+ * meses=12-2 alugueis>=10 desconto=7.5%
+ * </pre>
+ * Condições: cliente (PF, PJ), veiculo (tipos separados por vírgula), dias (&gt;n ou &gt;=n, até 365),
+ * meses da retirada (1 a 12, listas e faixas, inclusive de dezembro a fevereiro) e alugueis
+ * (&gt;=n, aluguéis do cliente contando o atual). Linhas em branco e após # são ignoradas.
+ * Quando várias regras valem para um aluguel, fica o maior desconto, como em CalculadoraDesconto.maiorDesconto.
+ *
+ * Na compilação, as regras são avaliadas para cada combinação de tipo de cliente, tipo de veículo,
+ * mês, faixa de volume do cliente e quantidade de dias (até o maior limite de dias das regras;
+ * acima dele o desconto não muda). Cada combinação vira uma CalculadoraDesconto que só lê um
+ * double do vetor: o cálculo de um preço não testa regras nem aloca. Imutável.
+ */
+public final class TabelaDescontos {
+    private static final TipoVeiculo[] TIPOS_VEICULO = TipoVeiculo.values();
+    private static final String[] TIPOS_CLIENTE = {"PF", "PJ"};
+    private static final int MESES = 12;
+    // Limita o tamanho da tabela: cada dia até o maior limite é uma coluna
+    private static final int MAXIMO_DIAS = 365;
+    private static final Pattern CONDICAO = Pattern.compile("([a-z]+)(>=|>|=)(\\S+)", Pattern.CASE_INSENSITIVE);
+
+    public static final TabelaDescontos VAZIA = compilar(List.of());
+
+    // Limites inferiores das faixas de volume, a partir da segunda (a primeira começa em 0)
+    private final long[] limitesVolume;
+    private final int quantidadeRegras;
+    private final CalculadoraDesconto[] calculadoras;
+
+    private TabelaDescontos(long[] limitesVolume, int quantidadeRegras, CalculadoraDesconto[] calculadoras) {
+        this.limitesVolume = limitesVolume;
+        this.quantidadeRegras = quantidadeRegras;
+        this.calculadoras = calculadoras;
+    }
+
+    /**
+     * Interpreta e compila as regras.
+     *
+     * @throws IllegalArgumentException com o número da linha, se alguma regra for inválida
+     */
+    public static TabelaDescontos compilar(List<String> linhas) {
+        List<Regra> regras = new ArrayList<>();
+        for (int i = 0; i < linhas.size(); i++) {
+            String linha = linhas.get(i);
+            int comentario = linha.indexOf('#');
+            String texto = (comentario >= 0 ? linha.substring(0, comentario) : linha).trim();
+            if (texto.isEmpty()) {
+                continue;
+            }
+            try {
+                regras.add(Regra.ler(texto));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Linha " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        TreeSet<Long> volumes = new TreeSet<>();
+        int limiteDias = 0;
+        for (Regra regra : regras) {
+            if (regra.minimoAlugueis > 0) {
+                volumes.add(regra.minimoAlugueis);
+            }
+            limiteDias = Math.max(limiteDias, regra.minimoDias);
+        }
+        long[] limitesVolume = volumes.stream().mapToLong(Long::longValue).toArray();
+        int faixasVolume = limitesVolume.length + 1;
+        int colunas = limiteDias + 1;
+
+        // taxas[celula * colunas + dias], celula = ((cliente * veiculos + veiculo) * 12 + mes) * faixas + faixa
+        int celulas = TIPOS_CLIENTE.length * TIPOS_VEICULO.length * MESES * faixasVolume;
+        double[] taxas = new double[celulas * colunas];
+        for (Regra regra : regras) {
+            for (int celula = 0; celula < celulas; celula++) {
+                int faixa = celula % faixasVolume;
+                int mes = celula / faixasVolume % MESES;
+                int veiculo = celula / faixasVolume / MESES % TIPOS_VEICULO.length;
+                int cliente = celula / faixasVolume / MESES / TIPOS_VEICULO.length;
+                long volume = faixa == 0 ? 0 : limitesVolume[faixa - 1];
+                if (!regra.vale(cliente, veiculo, mes, volume)) {
+                    continue;
+                }
+                for (int dias = regra.minimoDias; dias < colunas; dias++) {
+                    int posicao = celula * colunas + dias;
+                    taxas[posicao] = Math.max(taxas[posicao], regra.taxa);
+                }
+            }
+        }
+
+        CalculadoraDesconto[] calculadoras = new CalculadoraDesconto[celulas];
+        for (int celula = 0; celula < celulas; celula++) {
+            int inicio = celula * colunas;
+            calculadoras[celula] = dias -> taxas[inicio + Math.min(Math.max(dias, 0), colunas - 1)];
+        }
+        return new TabelaDescontos(limitesVolume, regras.size(), calculadoras);
+    }
+
+    /**
+     * Desconto por quantidade de dias para um aluguel com estas características.
+     *
+     * @param mesRetirada       de 1 a 12
+     * @param alugueisDoCliente aluguéis do cliente, contando o atual
+     */
+    public CalculadoraDesconto calculadora(Cliente cliente, TipoVeiculo tipoVeiculo, int mesRetirada, long alugueisDoCliente) {
+        int faixa = 0;
+        while (faixa < limitesVolume.length && alugueisDoCliente >= limitesVolume[faixa]) {
+            faixa++;
+        }
+        int tipoCliente = TipoClienteStrategy.EH_PESSOA_FISICA.test(cliente) ? 0 : 1;
+        int celula = ((tipoCliente * TIPOS_VEICULO.length + tipoVeiculo.ordinal()) * MESES + mesRetirada - 1)
+                * (limitesVolume.length + 1) + faixa;
+        return calculadoras[celula];
+    }
+
+    public int getQuantidadeRegras() {
+        return quantidadeRegras;
+    }
+
+    /**
+     * Uma regra lida do texto. Campos ausentes valem para qualquer valor.
+     */
+    private static final class Regra {
+        private boolean[] clientes = preenchido(TIPOS_CLIENTE.length);
+        private boolean[] veiculos = preenchido(TIPOS_VEICULO.length);
+        private boolean[] meses = preenchido(MESES);
+        private int minimoDias;
+        private long minimoAlugueis;
+        private double taxa = Double.NaN;
+
+        private static Regra ler(String texto) {
+            Regra regra = new Regra();
+            Set<String> vistas = new HashSet<>();
+            for (String termo : texto.split("\\s+")) {
+                Matcher condicao = CONDICAO.matcher(termo);
+                if (!condicao.matches()) {
+                    throw new IllegalArgumentException("Condição inválida: " + termo);
+                }
+                String chave = condicao.group(1).toLowerCase(Locale.ROOT);
+                if (!vistas.add(chave)) {
+                    throw new IllegalArgumentException("Condição repetida: " + chave);
+                }
+                regra.aplicar(chave, condicao.group(2), condicao.group(3));
+            }
+            if (Double.isNaN(regra.taxa)) {
+                throw new IllegalArgumentException("Regra sem desconto");
+            }
+            return regra;
+        }
+
+        private void aplicar(String chave, String operador, String valor) {
+            switch (chave) {
+                case "cliente" -> clientes = opcoes(exigirIgual(chave, operador), valor, TIPOS_CLIENTE);
+                case "veiculo" -> {
+                    String[] nomes = new String[TIPOS_VEICULO.length];
+                    for (int i = 0; i < nomes.length; i++) {
+                        nomes[i] = TIPOS_VEICULO[i].name();
+                    }
+                    veiculos = opcoes(exigirIgual(chave, operador), valor, nomes);
+                }
+                case "meses" -> meses = lerMeses(exigirIgual(chave, operador), valor);
+                case "dias" -> {
+                    if (operador.equals("=")) {
+                        throw new IllegalArgumentException("Use dias>n ou dias>=n");
+                    }
+                    long dias = lerInteiro(chave, valor) + (operador.equals(">") ? 1 : 0);
+                    if (dias > MAXIMO_DIAS) {
+                        throw new IllegalArgumentException("Limite de dias acima de " + MAXIMO_DIAS + ": " + valor);
+                    }
+                    minimoDias = (int) dias;
+                }
+                case "alugueis" -> {
+                    if (!operador.equals(">=")) {
+                        throw new IllegalArgumentException("Use alugueis>=n");
+                    }
+                    minimoAlugueis = lerInteiro(chave, valor);
+                }
+                case "desconto" -> taxa = lerTaxa(exigirIgual(chave, operador), valor);
+                default -> throw new IllegalArgumentException("Condição desconhecida: " + chave);
+            }
+        }
+
+        private boolean vale(int cliente, int veiculo, int mes, long volume) {
+            return clientes[cliente] && veiculos[veiculo] && meses[mes] && volume >= minimoAlugueis;
+        }
+
+        private static String exigirIgual(String chave, String operador) {
+            if (!operador.equals("=")) {
+                throw new IllegalArgumentException("Use " + chave + "=...");
+            }
+            return chave;
+        }
+
+        private static boolean[] opcoes(String chave, String valor, String[] nomes) {
+            boolean[] marcadas = new boolean[nomes.length];
+            for (String item : valor.split(",", -1)) {
+                int indice = List.of(nomes).indexOf(item.toUpperCase(Locale.ROOT));
+                if (indice < 0) {
+                    throw new IllegalArgumentException("Valor inválido para " + chave + ": " + item);
+                }
+                marcadas[indice] = true;
+            }
+            return marcadas;
+        }
+
+        private static boolean[] lerMeses(String chave, String valor) {
+            boolean[] marcados = new boolean[MESES];
+            for (String item : valor.split(",", -1)) {
+                String[] faixa = item.split("-", -1);
+                if (faixa.length > 2) {
+                    throw new IllegalArgumentException("Faixa de meses inválida: " + item);
+                }
+                int inicio = lerMes(faixa[0]);
+                int fim = faixa.length == 2 ? lerMes(faixa[1]) : inicio;
+                // faixas que passam de dezembro (ex.: 12-2) continuam em janeiro
+                for (int mes = inicio; ; mes = mes % MESES + 1) {
+                    marcados[mes - 1] = true;
+                    if (mes == fim) {
+                        break;
+                    }
+                }
+            }
+            return marcados;
+        }
+
+        private static int lerMes(String texto) {
+            long mes = lerInteiro("meses", texto);
+            if (mes < 1 || mes > MESES) {
+                throw new IllegalArgumentException("Mês inválido: " + texto);
+            }
+            return (int) mes;
+        }
+
+        private static long lerInteiro(String chave, String valor) {
+            try {
+                long numero = Long.parseLong(valor);
+                if (numero < 0) {
+                    throw new NumberFormatException();
+                }
+                return numero;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Número inválido para " + chave + ": " + valor);
+            }
+        }
+
+        private static double lerTaxa(String chave, String valor) {
+            if (!valor.endsWith("%")) {
+                throw new IllegalArgumentException("Desconto deve ser um percentual (ex.: 10%): " + valor);
+            }
+            try {
+                double percentual = Double.parseDouble(valor.substring(0, valor.length() - 1));
+                if (!(percentual >= 0 && percentual <= 100)) {
+                    throw new NumberFormatException();
+                }
+                return percentual / 100;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Percentual inválido para " + chave + ": " + valor);
+            }
+        }
+
+        private static boolean[] preenchido(int tamanho) {
+            boolean[] valores = new boolean[tamanho];
+            Arrays.fill(valores, true);
+            return valores;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package utils.legado;
+
+import java.io.Serializable;
+
+/**
+ * Campos de model.Cliente como estão nos .dat mais antigos, lidos como superclasse de
+ * PessoaFisica e PessoaJuridica (ver ArquivoUtil). Só guarda os dados para a conversão.
+ */
+public class Cliente implements Serializable {
+    private static final long serialVersionUID = -2003829889780473543L;
+
+    String documento;
+    String nome;
+}
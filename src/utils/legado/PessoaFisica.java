@@ -0,0 +1,19 @@
+package utils.legado;
+
+/**
+ * PessoaFisica como foi gravada nos .dat mais antigos, ainda com o campo cpf, e com outro
+ * serialVersionUID. Só existe para a migração da serialização Java (ver ArquivoUtil): o nome
+ * simples precisa ser o mesmo da classe gravada, e readResolve() devolve a PessoaFisica atual.
+ */
+public class PessoaFisica extends Cliente {
+    private static final long serialVersionUID = -7285282001980663149L;
+
+    private String cpf;
+
+    private PessoaFisica() {
+    }
+
+    private Object readResolve() {
+        return new model.PessoaFisica(documento != null ? documento : cpf, nome);
+    }
+}
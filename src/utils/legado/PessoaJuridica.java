@@ -0,0 +1,17 @@
+package utils.legado;
+
+/**
+ * PessoaJuridica como foi gravada nos .dat mais antigos, ainda com o campo cnpj (ver PessoaFisica).
+ */
+public class PessoaJuridica extends Cliente {
+    private static final long serialVersionUID = 8770534736683824914L;
+
+    private String cnpj;
+
+    private PessoaJuridica() {
+    }
+
+    private Object readResolve() {
+        return new model.PessoaJuridica(documento != null ? documento : cnpj, nome);
+    }
+}
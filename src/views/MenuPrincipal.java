@@ -1,19 +1,26 @@
 package views;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 import model.*;
 import services.*;
+import utils.Pagina;
 
 public class MenuPrincipal {
     private ClienteService clienteService;
     private VeiculoService veiculoService;
     private AluguelService aluguelService;
     private Scanner scanner;
+    // Mantido entre as visitas ao menu, para acompanhar relatórios gerados em segundo plano
+    private MenuRelatorios menuRelatorios;
 
     public MenuPrincipal(ClienteService clienteService, VeiculoService veiculoService, AluguelService aluguelService) {
         this.clienteService = clienteService;
@@ -34,7 +41,7 @@ public class MenuPrincipal {
                 case 2 -> new MenuVeiculo(veiculoService, scanner).iniciar();
                 case 3 -> new MenuAluguel(aluguelService, clienteService, veiculoService, scanner).iniciar();
                 case 4 -> new MenuRefatoracoes(clienteService, veiculoService, aluguelService, scanner).iniciar();
-                case 5 -> new MenuRelatorios(aluguelService, clienteService, veiculoService, scanner).iniciar();
+                case 5 -> menuRelatorios().iniciar();
                 case 0 -> {
                     System.out.println("Saindo do sistema... Obrigado por usar o ADA LocateCar!");
                     return;
@@ -44,6 +51,13 @@ public class MenuPrincipal {
         }
     }
 
+    private MenuRelatorios menuRelatorios() {
+        if (menuRelatorios == null) {
+            menuRelatorios = new MenuRelatorios(aluguelService, clienteService, veiculoService, scanner);
+        }
+        return menuRelatorios;
+    }
+
     private void exibirMenuPrincipal() {
         System.out.println("\n" + "=".repeat(60));
         System.out.println("         ADA LOCATECAR - MENU PRINCIPAL");
@@ -354,6 +368,8 @@ class MenuAluguel {
                 case 2 -> devolverVeiculo();
                 case 3 -> listarAlugueisAtivos();
                 case 4 -> listarTodosAlugueis();
+                case 5 -> alugarEmLote();
+                case 6 -> devolverEmLote();
                 case 0 -> {return;}
                 default -> System.out.println("Opção inválida!");
             }
@@ -366,6 +382,8 @@ class MenuAluguel {
         System.out.println("2 - Devolver Veículo");
         System.out.println("3 - Listar Aluguéis Ativos");
         System.out.println("4 - Listar Todos os Aluguéis");
+        System.out.println("5 - Alugar Vários Veículos (lote)");
+        System.out.println("6 - Devolver Vários Veículos (lote)");
         System.out.println("0 - Voltar");
         System.out.print("Escolha: ");
     }
@@ -453,9 +471,8 @@ class MenuAluguel {
         System.out.print("Local de devolução: ");
         String localDevolucao = scanner.nextLine();
         
-        Optional<Aluguel> aluguelParaValidacao = aluguelService.listarAtivos().stream()
-                .filter(a -> a.getId().equals(aluguelId))
-                .findFirst();
+        Optional<Aluguel> aluguelParaValidacao = aluguelService.buscarPorId(aluguelId)
+                .filter(Aluguel::isAtivo);
         
         LocalDateTime dataRetirada = null;
         if (aluguelParaValidacao.isPresent()) {
@@ -467,9 +484,7 @@ class MenuAluguel {
         try {
             aluguelService.devolver(aluguelId, dataDevolucao, localDevolucao);
             
-            Optional<Aluguel> aluguelOpt = aluguelService.listarTodos().stream()
-                    .filter(a -> a.getId().equals(aluguelId))
-                    .findFirst();
+            Optional<Aluguel> aluguelOpt = aluguelService.buscarPorId(aluguelId);
             
             if (aluguelOpt.isPresent()) {
                 Aluguel aluguel = aluguelOpt.get();
@@ -487,6 +502,135 @@ class MenuAluguel {
         }
     }
 
+    /**
+     * Aluguel de vários veículos para o mesmo cliente (ex.: frota de pessoa jurídica), tudo ou nada.
+     */
+    private void alugarEmLote() {
+        System.out.println("\n=== ALUGAR VÁRIOS VEÍCULOS ===");
+        scanner.nextLine(); // limpar buffer
+
+        System.out.print("Documento do cliente: ");
+        String documento = scanner.nextLine().trim();
+
+        System.out.println("\n--- VEÍCULOS DISPONÍVEIS ---");
+        for (Veiculo veiculo : veiculoService.listarDisponiveis()) {
+            System.out.printf("%s - %s [%s]%n", veiculo.getPlaca(), veiculo.getNome(), veiculo.getTipo());
+        }
+        System.out.print("Placas separadas por vírgula: ");
+        List<String> placas = lerLista();
+
+        System.out.print("Local de retirada: ");
+        String localRetirada = scanner.nextLine();
+
+        try {
+            List<ResultadoAluguel> resultados =
+                    aluguelService.alugarEmLote(documento, placas, LocalDateTime.now(), localRetirada);
+            exibirResultadosLote(placas, resultados);
+        } catch (Exception e) {
+            System.out.println("Erro ao alugar veículos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devolução de vários aluguéis ativos de um cliente, tudo ou nada.
+     */
+    private void devolverEmLote() {
+        System.out.println("\n=== DEVOLVER VÁRIOS VEÍCULOS ===");
+        scanner.nextLine(); // limpar buffer
+
+        System.out.print("Documento do cliente: ");
+        String documento = scanner.nextLine().trim();
+        List<Aluguel> ativos = aluguelService.listarPorCliente(documento).stream()
+                .filter(Aluguel::isAtivo)
+                .toList();
+        if (ativos.isEmpty()) {
+            System.out.println("Nenhum aluguel ativo para este cliente!");
+            return;
+        }
+        for (Aluguel aluguel : ativos) {
+            System.out.printf("ID: %s | Veículo: %s - %s%n", aluguel.getId().substring(0, 8),
+                    aluguel.getVeiculo().getPlaca(), aluguel.getVeiculo().getNome());
+        }
+
+        System.out.print("IDs (início do ID) separados por vírgula, ou ENTER para devolver todos: ");
+        List<String> prefixos = lerLista();
+
+        try {
+            List<String> ids = prefixos.isEmpty()
+                    ? ativos.stream().map(Aluguel::getId).toList()
+                    : resolverPrefixos(prefixos, ativos);
+            if (ids == null) {
+                return;
+            }
+
+            System.out.print("Local de devolução: ");
+            String localDevolucao = scanner.nextLine();
+            LocalDateTime dataDevolucao = lerDataHoraDevolucao(ativos.stream()
+                    .map(Aluguel::getDataHoraRetirada)
+                    .max(LocalDateTime::compareTo)
+                    .orElse(null));
+
+            List<ResultadoAluguel> resultados = aluguelService.devolverEmLote(ids, dataDevolucao, localDevolucao);
+            exibirResultadosLote(ids, resultados);
+        } catch (Exception e) {
+            System.out.println("Erro ao devolver veículos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve cada início de ID entre os aluguéis ativos do próprio cliente (nunca de outro).
+     *
+     * @return os IDs completos, na ordem digitada, ou null se algum início não identificar
+     *         exatamente um aluguel (os problemas são exibidos item a item)
+     */
+    private List<String> resolverPrefixos(List<String> prefixos, List<Aluguel> ativos) {
+        List<String> ids = new ArrayList<>();
+        List<String> erros = new ArrayList<>();
+        for (String prefixo : prefixos) {
+            List<Aluguel> encontrados = ativos.stream()
+                    .filter(aluguel -> aluguel.getId().startsWith(prefixo))
+                    .toList();
+            if (encontrados.size() == 1) {
+                ids.add(encontrados.get(0).getId());
+            } else if (encontrados.isEmpty()) {
+                erros.add(prefixo + ": nenhum aluguel ativo deste cliente com este início de ID");
+            } else {
+                erros.add(prefixo + ": início de ID ambíguo (" + encontrados.size() + " aluguéis ativos); digite mais caracteres");
+            }
+        }
+        if (erros.isEmpty()) {
+            return ids;
+        }
+        System.out.println("\n=== LOTE RECUSADO (nada foi alterado) ===");
+        erros.forEach(System.out::println);
+        return null;
+    }
+
+    private List<String> lerLista() {
+        List<String> itens = new ArrayList<>();
+        for (String item : scanner.nextLine().split(",")) {
+            if (!item.isBlank()) {
+                itens.add(item.trim());
+            }
+        }
+        return itens;
+    }
+
+    private void exibirResultadosLote(List<String> itens, List<ResultadoAluguel> resultados) {
+        boolean aceito = resultados.stream().allMatch(ResultadoAluguel::isSucesso);
+        System.out.println(aceito ? "\n=== LOTE REALIZADO COM SUCESSO ===" : "\n=== LOTE RECUSADO (nada foi alterado) ===");
+        for (int i = 0; i < resultados.size(); i++) {
+            ResultadoAluguel resultado = resultados.get(i);
+            if (resultado.isSucesso()) {
+                Aluguel aluguel = resultado.getAluguel();
+                System.out.printf("%s - %s | ID: %s%s%n", aluguel.getVeiculo().getPlaca(), aluguel.getVeiculo().getNome(),
+                        aluguel.getId(), aluguel.isAtivo() ? "" : String.format(" | Valor: R$ %.2f", aluguel.getValorTotal()));
+            } else {
+                System.out.printf("%s: %s%n", itens.get(i), resultado.getMensagem());
+            }
+        }
+    }
+
     private LocalDateTime lerDataHoraDevolucao(LocalDateTime dataRetirada) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
         
@@ -647,11 +791,11 @@ class MenuRefatoracoes {
         System.out.println("\n" + "=".repeat(70));
         System.out.println("    DEMONSTRAÇÃO DAS REFATORAÇÕES - CHECKLIST REFACT.MD");
         System.out.println("=".repeat(70));
-        System.out.println("1 - Paginação (Stream.skip() + limit())");
+        System.out.println("1 - Paginação por cursor (keyset)");
         System.out.println("2 - Filtros com Predicate");
         System.out.println("3 - Agrupamento com Streams (groupingBy)");
         System.out.println("4 - Rankings com Function (veículos/clientes mais ativos)");
-        System.out.println("5 - Cálculos com Reduce (faturamento total)");
+        System.out.println("5 - Cálculos de Faturamento (agregados)");
         System.out.println("6 - Consumer para impressão formatada");
         System.out.println("7 - Comparator com Lambda (ordenação)");
         System.out.println("8 - Executar TODAS as demonstrações");
@@ -662,7 +806,7 @@ class MenuRefatoracoes {
 
     private void demonstrarPaginacao() {
         System.out.println("\n" + "=".repeat(70));
-        System.out.println("1. PAGINAÇÃO COM STREAM.SKIP() E LIMIT()");
+        System.out.println("1. PAGINAÇÃO POR CURSOR (KEYSET)");
         System.out.println("=".repeat(70));
 
         scanner.nextLine(); // limpar buffer antes da leitura
@@ -683,39 +827,35 @@ class MenuRefatoracoes {
             }
         }
 
-        int numeroPagina;
-        while (true) {
-            try {
-                System.out.print("Número da página (começando em 0): ");
-                numeroPagina = Integer.parseInt(scanner.nextLine().trim());
+        String cursor = null;
+        int numeroPagina = 0;
+        do {
+            Pagina<Veiculo> pagina = veiculoService.listarAPartirDe(cursor, tamanhoPagina);
 
-                if (numeroPagina < 0) {
-                    System.out.println("O número da página não pode ser negativo.\n");
-                    continue;
-                }
-                break;
-            } catch (NumberFormatException e) {
-                System.out.println("Valor inválido! Digite um número inteiro.\n");
-            }
-        }
-
-        System.out.println("\nVeículos - Página " + numeroPagina + " (tamanho: " + tamanhoPagina + "):");
-        System.out.println("-".repeat(70));
+            System.out.println("\nVeículos - Página " + numeroPagina + " (tamanho: " + tamanhoPagina + "):");
+            System.out.println("-".repeat(70));
 
-        List<Veiculo> paginaVeiculos = veiculoService.listarComPaginacao(numeroPagina, tamanhoPagina);
+            if (pagina.getItens().isEmpty()) {
+                System.out.println("Nenhum veículo nesta página.");
+            } else {
+                pagina.getItens().forEach(veiculo ->
+                    System.out.printf("  %s - %s [%s] - R$ %.2f/dia%n",
+                        veiculo.getPlaca(), veiculo.getNome(), veiculo.getTipo(),
+                        veiculo.getTipo().getValorDiaria())
+                );
+            }
 
-        if (paginaVeiculos.isEmpty()) {
-            System.out.println("Nenhum veículo nesta página.");
-        } else {
-            paginaVeiculos.forEach(veiculo ->
-                System.out.printf("  %s - %s [%s] - R$ %.2f/dia%n",
-                    veiculo.getPlaca(), veiculo.getNome(), veiculo.getTipo(),
-                    veiculo.getTipo().getValorDiaria())
-            );
-        }
+            cursor = pagina.getProximoCursor();
+            numeroPagina++;
+            if (cursor == null) {
+                System.out.println("\nÚltima página.");
+                break;
+            }
+            System.out.print("\nENTER para a próxima página ou S para parar: ");
+        } while (!scanner.nextLine().trim().equalsIgnoreCase("s"));
 
-        System.out.println("\nCódigo usado: clienteService.listarComPaginacao(pagina, tamanho)");
-        System.out.println("   Implementação: .skip(pagina * tamanho).limit(tamanho)");
+        System.out.println("\nCódigo usado: veiculoService.listarAPartirDe(cursor, tamanho)");
+        System.out.println("   Implementação: índice ordenado por nome + tailMap(cursor) (sem reordenar nem pular)");
         aguardarEnter();
     }
 
@@ -790,46 +930,49 @@ class MenuRefatoracoes {
 
         System.out.println("\nTOP 5 Veículos Mais Alugados:");
         System.out.println("-".repeat(70));
-        aluguelService.obterVeiculosMaisAlugados().stream()
-            .limit(5)
-            .forEach(entry ->
-                System.out.printf("  %s: %d aluguéis%n", entry.getKey(), entry.getValue())
-            );
+        aluguelService.obterVeiculosMaisAlugados(5).forEach(posicao ->
+            System.out.printf("  %d. %s - %s: %d aluguéis%n", posicao.getPosicao(),
+                posicao.getItem().getPlaca(), posicao.getItem().getNome(), posicao.getQuantidade())
+        );
 
         System.out.println("\nTOP 5 Clientes que Mais Alugaram:");
         System.out.println("-".repeat(70));
-        aluguelService.obterClientesQueMaisAlugaram().stream()
-            .limit(5)
-            .forEach(entry ->
-                System.out.printf("  %s: %d aluguéis%n", entry.getKey(), entry.getValue())
-            );
+        aluguelService.obterClientesQueMaisAlugaram(5).forEach(posicao ->
+            System.out.printf("  %d. %s - %s: %d aluguéis%n", posicao.getPosicao(),
+                posicao.getItem().getDocumento(), posicao.getItem().getNome(), posicao.getQuantidade())
+        );
 
-        System.out.println("\n✅ Pipeline usado:");
-        System.out.println("   .collect(Collectors.groupingBy(..., Collectors.counting()))");
-        System.out.println("   .entrySet().stream()");
-        System.out.println("   .sorted(Map.Entry.comparingByValue().reversed())");
+        System.out.println("\n✅ Como é calculado:");
+        System.out.println("   contador por placa/documento, incrementado a cada aluguel");
+        System.out.println("   top-K com heap limitado (Ranking.maiores), sem ordenar o histórico");
         aguardarEnter();
     }
 
     private void demonstrarCalculosComReduce() {
         System.out.println("\n" + "=".repeat(70));
-        System.out.println("5. CÁLCULOS COM STREAMS + REDUCE");
+        System.out.println("5. CÁLCULOS DE FATURAMENTO (AGREGADOS)");
         System.out.println("=".repeat(70));
 
-        System.out.println("\nFaturamento Total (usando reduce):");
+        System.out.println("\nFaturamento Total:");
         System.out.println("-".repeat(70));
-        java.math.BigDecimal faturamentoTotal = aluguelService.calcularFaturamentoTotal();
-        System.out.printf("  Faturamento total: R$ %.2f%n", faturamentoTotal);
+        Dinheiro faturamentoTotal = aluguelService.calcularFaturamentoTotal();
+        System.out.printf("  Faturamento total: R$ %.2f%n", faturamentoTotal.paraBigDecimal());
 
         System.out.println("\nFaturamento por Tipo de Veículo:");
         System.out.println("-".repeat(70));
         aluguelService.calcularFaturamentoPorTipo().forEach((tipo, valor) ->
-            System.out.printf("  %s: R$ %.2f%n", tipo, valor)
+            System.out.printf("  %s: R$ %.2f%n", tipo, valor.paraBigDecimal())
         );
 
-        System.out.println("\nCódigo usado:");
-        System.out.println("   .map(Aluguel::getValorTotal)");
-        System.out.println("   .reduce(BigDecimal.ZERO, BigDecimal::add)");
+        System.out.println("\nFaturamento por Tipo de Cliente:");
+        System.out.println("-".repeat(70));
+        aluguelService.calcularFaturamentoPorTipoCliente().forEach((tipo, valor) ->
+            System.out.printf("  %s: R$ %.2f%n", tipo, valor.paraBigDecimal())
+        );
+
+        System.out.println("\nComo é calculado:");
+        System.out.println("   somas em centavos (long) mantidas a cada devolução e reconstruídas na carga;");
+        System.out.println("   a consulta lê o valor pronto, sem percorrer o histórico");
         aguardarEnter();
     }
 
@@ -934,6 +1077,7 @@ class MenuRelatorios {
     private VeiculoService veiculoService;
     private Scanner scanner;
     private RelatorioService relatorioService;
+    private TarefaRelatorios tarefa;
 
     public MenuRelatorios(AluguelService aluguelService, ClienteService clienteService,
                          VeiculoService veiculoService, Scanner scanner) {
@@ -957,6 +1101,8 @@ class MenuRelatorios {
                 case 5 -> gerarReciboDevolucao();
                 case 6 -> gerarRelatorioCompleto();
                 case 7 -> gerarTodosRelatorios();
+                case 8 -> exibirAndamento();
+                case 9 -> gerarRecibosEmLote();
                 case 0 -> {return;}
                 default -> System.out.println("Opção inválida!");
             }
@@ -973,7 +1119,12 @@ class MenuRelatorios {
         System.out.println("4 - Recibo de Aluguel");
         System.out.println("5 - Recibo de Devolução");
         System.out.println("6 - Relatório Completo de Aluguéis");
-        System.out.println("7 - Gerar TODOS os Relatórios");
+        System.out.println("7 - Gerar TODOS os Relatórios (em segundo plano)");
+        System.out.println("8 - Andamento da Geração em Segundo Plano");
+        System.out.println("9 - Recibos em Lote (arquivo ZIP)");
+        if (tarefa != null && !tarefa.isConcluida()) {
+            System.out.printf("    (gerando: %d/%d relatórios)%n", tarefa.getConcluidos(), tarefa.getTotal());
+        }
         System.out.println("0 - Voltar");
         System.out.println("=".repeat(70));
         System.out.print("Escolha: ");
@@ -1109,22 +1260,96 @@ class MenuRelatorios {
         }
     }
 
+    /**
+     * Inicia a geração em segundo plano e volta ao menu sem esperar; o andamento fica na opção 8.
+     */
     private void gerarTodosRelatorios() {
         System.out.println("\nGERANDO TODOS OS RELATÓRIOS...");
         System.out.println("=".repeat(70));
 
+        if (tarefa != null && !tarefa.isConcluida()) {
+            System.out.println("Já existe uma geração em andamento.");
+            exibirAndamento();
+            return;
+        }
+
         try {
             LocalDateTime hoje = LocalDateTime.now();
             LocalDateTime trintaDiasAtras = hoje.minusDays(30);
 
-            relatorioService.gerarRelatorioFaturamentoPorPeriodo(trintaDiasAtras, hoje);
-            relatorioService.gerarRelatorioVeiculosMaisAlugados();
-            relatorioService.gerarRelatorioClientesQueMaisAlugaram();
-            relatorioService.gerarRelatorioCompletodeAlugueis();
+            tarefa = relatorioService.gerarTodosRelatorios(trintaDiasAtras, hoje);
+
+            System.out.printf("Geração de %d relatórios iniciada em segundo plano.%n", tarefa.getTotal());
+            System.out.println("   Acompanhe pela opção 8; os arquivos ficam no diretório 'relatorios/'");
 
-            System.out.println("\nTODOS OS RELATÓRIOS GERADOS COM SUCESSO!");
-            System.out.println("   Verifique o diretório 'relatorios/'");
+        } catch (Exception e) {
+            System.out.println("Erro: " + e.getMessage());
+        }
+    }
+
+    private void exibirAndamento() {
+        if (tarefa == null) {
+            System.out.println("\nNenhuma geração em segundo plano foi iniciada.");
+            return;
+        }
+
+        System.out.println("\nANDAMENTO DA GERAÇÃO");
+        System.out.println("-".repeat(70));
+        tarefa.getRelatorios().forEach((nome, relatorio) -> {
+            if (!relatorio.isDone()) {
+                System.out.printf("  [...]  %s%n", nome);
+            } else if (relatorio.isCompletedExceptionally()) {
+                Throwable erro = relatorio.exceptionNow();
+                System.out.printf("  [ERRO] %s: %s%n", nome, erro.getMessage());
+            } else {
+                System.out.printf("  [OK]   %s -> %s%n", nome, relatorio.resultNow());
+            }
+        });
+        System.out.printf("Concluídos: %d/%d (%d%%) em %d ms%n",
+                tarefa.getConcluidos(), tarefa.getTotal(), tarefa.getPercentual(), tarefa.getDuracao().toMillis());
+        if (tarefa.isConcluida()) {
+            System.out.println(tarefa.getFalhas() == 0
+                    ? "TODOS OS RELATÓRIOS GERADOS COM SUCESSO!"
+                    : "Geração concluída com " + tarefa.getFalhas() + " falha(s).");
+        }
+    }
+
+    /**
+     * Recibos de devolução de um mês (ex.: para a contabilidade) ou todos os recibos de um cliente,
+     * num único arquivo ZIP.
+     */
+    private void gerarRecibosEmLote() {
+        System.out.println("\nRECIBOS EM LOTE (ZIP)");
+        System.out.println("-".repeat(70));
+        System.out.println("1 - Recibos de devolução de um mês");
+        System.out.println("2 - Todos os recibos de um cliente");
+        System.out.print("Escolha: ");
+        int tipo = lerOpcao();
+        scanner.nextLine();
+
+        try {
+            long inicioGeracao = System.nanoTime();
+            Path arquivo;
+            if (tipo == 1) {
+                System.out.print("Mês (MM/yyyy) ou ENTER para o mês atual: ");
+                String entrada = scanner.nextLine().trim();
+                YearMonth mes = entrada.isEmpty()
+                        ? YearMonth.now()
+                        : YearMonth.parse(entrada, DateTimeFormatter.ofPattern("MM/yyyy"));
+                arquivo = relatorioService.gerarRecibosDevolucaoPorPeriodo(
+                        mes.atDay(1).atStartOfDay(), mes.atEndOfMonth().atTime(LocalTime.MAX));
+            } else if (tipo == 2) {
+                System.out.print("Documento do cliente (CPF/CNPJ): ");
+                arquivo = relatorioService.gerarRecibosPorCliente(scanner.nextLine().trim());
+            } else {
+                System.out.println("Opção inválida!");
+                return;
+            }
+            System.out.printf("%n✅ Arquivo gerado em %d ms: %s%n",
+                    (System.nanoTime() - inicioGeracao) / 1_000_000, arquivo);
 
+        } catch (DateTimeParseException e) {
+            System.out.println("Erro: Mês inválido! Use o formato MM/yyyy");
         } catch (Exception e) {
             System.out.println("Erro: " + e.getMessage());
         }